@@ -0,0 +1,233 @@
+package dyatel.terracontrol;
+
+import dyatel.terracontrol.level.CellMaster;
+import dyatel.terracontrol.level.LevelPool;
+import dyatel.terracontrol.level.ServerLevel;
+import dyatel.terracontrol.level.generation.Generator;
+import dyatel.terracontrol.network.ServerConnection;
+import dyatel.terracontrol.util.DataArray;
+import dyatel.terracontrol.util.Debug;
+import dyatel.terracontrol.util.ErrorLogger;
+import dyatel.terracontrol.util.SplitRandom;
+import dyatel.terracontrol.util.Util;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class HeadlessServer implements Runnable {
+
+    // Dedicated server without window, level is updated by scheduler and nothing is rendered
+
+    private static final int ups = 30; // Updates per second
+
+    private static final String usage = "Usage: --headless [--generator=Fill] [--size=55x28] [--colors=ff0000,00ff00,0000ff] " +
+            "[--seed=] [--port=8192] [--players=2] [--fast=true] [--endAt50=true] [--level=file] [--games=1] [--pool=0] " +
+            "[--cache=levels] [--cacheSize=16] [--journal=]";
+
+    private Debug debug = Debug.serverDebug; // Output
+
+    private DataArray data; // Level parameters
+    private ServerLevel level; // Level
+    private ServerConnection connection; // Connection manager
+    private LevelPool pool; // Ready levels, null if every level is generated when game starts
+    private int games; // Games left to play
+    private ScheduledExecutorService scheduler; // Calls update ups times per second
+
+    private Random random; // Randomizer for placing players
+    private int nextSeed = 0; // Number of next level seed, levels without pool get seeds like pool levels
+
+    private int lastState = -1; // State that was printed last time
+    private int lastConnected = 0; // Number of connected players that was printed last time
+
+    public HeadlessServer(DataArray data, int games, LevelPool pool, Random random) throws Exception {
+        debug.println("Starting headless server...");
+
+        this.data = data;
+        this.games = games;
+        this.pool = pool;
+        this.random = random;
+        level = nextLevel();
+        connection = new ServerConnection(data.getInteger("port"), level, debug);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleAtFixedRate(this, 0, 1000000000L / ups, TimeUnit.NANOSECONDS);
+    }
+
+    public void run() {
+        // Exception would cancel all next updates, so every one is caught here
+        try {
+            level.update();
+
+            int state = level.getState();
+            if (state == 1) placePlayers();
+            printState(state);
+            if (state == 4) {
+                if (--games > 0)
+                    nextGame();
+                else
+                    stop();
+            }
+        } catch (Exception e) {
+            ErrorLogger.add(e);
+        }
+    }
+
+    private ServerLevel nextLevel() throws Exception {
+        // Pool usually has level ready, otherwise it`s generated by updates
+        if (pool != null) return pool.take();
+
+        // Same seed would make same level every game
+        DataArray levelData = new DataArray(data);
+        if (!data.getString("seed").equals("")) levelData.fillString("seed", data.getString("seed") + "-" + nextSeed++);
+        return new ServerLevel(levelData, debug);
+    }
+
+    private void nextGame() throws Exception {
+        debug.println("Starting next game, " + games + " left...");
+        connection.stop();
+        level = nextLevel();
+        connection = new ServerConnection(data.getInteger("port"), level, debug);
+        lastState = -1;
+        lastConnected = 0;
+    }
+
+    private void placePlayers() {
+        if (level.getMasters().size() < level.getPlayers()) {
+            debug.println("Level has only " + level.getMasters().size() + " masters for " + level.getPlayers() + " players!");
+            stop();
+            return;
+        }
+
+        // Nobody can click on level, so players get random free masters
+        while (level.getState() == 1) {
+            CellMaster master = level.getMaster(random.nextInt(level.getWidth()), random.nextInt(level.getHeight()));
+            if (level.placePlayer(master)) debug.println("Placed player " + (level.getPlacedPlayers() - 1) + " on master " + master.getID());
+        }
+    }
+
+    private void printState(int state) {
+        if (state == 2) {
+            int connected = 0;
+            for (int i = 0; i < level.getPlayers(); i++) if (level.getPlayer(i).isConnected()) connected++;
+            if (connected != lastConnected) debug.println("Connected players: " + connected + "/" + level.getPlayers());
+            lastConnected = connected;
+        }
+
+        if (state == lastState) return;
+        lastState = state;
+        switch (state) {
+            case 0:
+                debug.println("Generating level...");
+                break;
+            case 2:
+                debug.println("Waiting for players on port " + connection.getPort() + "...");
+                break;
+            case 3:
+                debug.println("Game started");
+                break;
+            case 4:
+                debug.println("Game end, traffic: " + connection.getTraffic());
+                break;
+        }
+    }
+
+    public void stop() {
+        debug.println("Stopping headless server...");
+        scheduler.shutdown();
+        connection.stop();
+        if (pool != null) pool.stop();
+    }
+
+    public static void start(String[] args) {
+        Debug debug = Debug.serverDebug;
+
+        // Things to do on exit
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            public void run() {
+                ErrorLogger.close(); // Filling error log
+            }
+        });
+
+        try {
+            // Default values are same as in launcher
+            HashMap<String, String> options = new HashMap<String, String>();
+            options.put("generator", "Fill");
+            options.put("size", "55x28");
+            options.put("colors", "ff0000,00ff00,0000ff");
+            options.put("seed", "");
+            options.put("port", "8192");
+            options.put("players", "2");
+            options.put("fast", "true");
+            options.put("endAt50", "true");
+            options.put("level", "");
+            options.put("games", "1");
+            options.put("pool", "0");
+            options.put("cache", "levels");
+            options.put("cacheSize", "16");
+            options.put("journal", "");
+
+            // Parsing arguments like --name=value
+            for (String arg : args) {
+                if (arg.equals("--headless")) continue;
+                int split = arg.indexOf('=');
+                if (!arg.startsWith("--") || split == -1 || !options.containsKey(arg.substring(2, split))) throw new IllegalArgumentException(arg);
+                options.put(arg.substring(2, split), arg.substring(split + 1));
+            }
+
+            DataArray data = new DataArray();
+            String[] size = options.get("size").split("x");
+            data.fillInteger("levelWidth", size[0]);
+            data.fillInteger("levelHeight", size[1]);
+            data.fillInteger("port", options.get("port"));
+            data.fillInteger("players", options.get("players"));
+            data.fillString("generatorType", options.get("generator"));
+            data.fillBoolean("fastGeneration", Boolean.parseBoolean(options.get("fast")));
+            data.fillBoolean("endAt50", Boolean.parseBoolean(options.get("endAt50")));
+            data.fillString("levelFile", options.get("level"));
+            data.fillString("seed", options.get("seed"));
+            data.fillString("journalFile", options.get("journal"));
+
+            String[] colorsR = options.get("colors").split(",");
+            data.fillInteger("colors", colorsR.length);
+            for (int i = 0; i < colorsR.length; i++) {
+                data.fillInteger("color" + i, Integer.parseInt(colorsR[i], 16));
+            }
+
+            // Checking input before starting anything
+            int games = Integer.parseInt(options.get("games"));
+            int poolSize = Integer.parseInt(options.get("pool"));
+            int cacheSize = Integer.parseInt(options.get("cacheSize"));
+            if (data.getInteger("levelWidth") <= 0 || data.getInteger("levelHeight") <= 0 || data.getInteger("players") <= 0 || games <= 0) {
+                throw new IllegalArgumentException("size, players and games must be positive");
+            }
+            if (poolSize < 0 || cacheSize < 0) throw new IllegalArgumentException("pool and cache size can`t be negative");
+            if (!contains(Generator.types, options.get("generator"))) {
+                throw new IllegalArgumentException("unknown generator " + options.get("generator"));
+            }
+
+            // Placing gets its own randomizer, levels make theirs from seeds
+            Random random = new Random(SplitRandom.mix(Util.parseSeed(options.get("seed"))));
+
+            // Pool generates levels before they are needed
+            LevelPool pool = poolSize > 0 ? new LevelPool(data, poolSize, new File(options.get("cache")), cacheSize, debug) : null;
+            new HeadlessServer(data, games, pool, random);
+        } catch (IllegalArgumentException e) {
+            // Number format errors are here too
+            debug.println("Error: wrong input! (" + e.getMessage() + ")");
+            debug.println(usage);
+        } catch (Exception e) {
+            debug.println("Can`t start server: " + e);
+            ErrorLogger.add(e);
+        }
+    }
+
+    private static boolean contains(String[] array, String value) {
+        for (String s : array) if (s.equals(value)) return true;
+        return false;
+    }
+
+}
@@ -1,10 +1,11 @@
 package dyatel.terracontrol;
 
+import dyatel.terracontrol.level.Replay;
+import dyatel.terracontrol.level.ai.AI;
 import dyatel.terracontrol.level.generation.Generator;
 import dyatel.terracontrol.util.DataArray;
 import dyatel.terracontrol.util.Debug;
 import dyatel.terracontrol.util.ErrorLogger;
-import dyatel.terracontrol.util.Util;
 import dyatel.terracontrol.window.Client;
 import dyatel.terracontrol.window.Server;
 import dyatel.terracontrol.window.SinglePlayer;
@@ -42,6 +43,12 @@ public class Launcher extends JFrame {
 
         final JComboBox generatorTypeBox = new JComboBox<String>(Generator.types);
 
+        final JComboBox<String> aiBox = new JComboBox<String>(AI.types);
+        final JTextField playoutsField = new JTextField("20000");
+
+        final JCheckBox fastGenerationCheck = new JCheckBox();
+        fastGenerationCheck.setHorizontalAlignment(JCheckBox.CENTER);
+
         final JTextField seedField = new JTextField("");
 
         final JCheckBox endAt50Check = new JCheckBox();
@@ -50,6 +57,11 @@ public class Launcher extends JFrame {
 
         final JTextField colorsField = new JTextField("ff0000 00ff00 0000ff");
 
+        final JTextField levelFileField = new JTextField("");
+        final JButton levelFileButton = new JButton("Load level");
+
+        final JTextField journalField = new JTextField("");
+
         final JButton single = new JButton("Single player");
         final JButton client = new JButton("Client");
         final JButton server = new JButton("Server");
@@ -72,6 +84,18 @@ public class Launcher extends JFrame {
         add(new JLabel());
         add(generatorTypeBox);
 
+        add(new JLabel("AI"));
+        add(new JLabel());
+        add(aiBox);
+
+        add(new JLabel("MCTS playouts"));
+        add(new JLabel());
+        add(playoutsField);
+
+        add(new JLabel("Fast generation"));
+        add(new JLabel());
+        add(fastGenerationCheck);
+
         add(new JLabel("Randomizer seed"));
         add(new JLabel());
         add(seedField);
@@ -84,6 +108,14 @@ public class Launcher extends JFrame {
         add(new JLabel());
         add(colorsField);
 
+        add(new JLabel("Level file"));
+        add(levelFileField);
+        add(levelFileButton);
+
+        add(new JLabel("Journal file or directory"));
+        add(new JLabel());
+        add(journalField);
+
         add(single);
         add(client);
         add(server);
@@ -91,6 +123,16 @@ public class Launcher extends JFrame {
 
         setLocationRelativeTo(null);
 
+        levelFileButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                // Existing file is loaded instead of generating, new file gets generated level
+                JFileChooser chooser = new JFileChooser(".");
+                if (chooser.showOpenDialog(Launcher.this) == JFileChooser.APPROVE_OPTION) {
+                    levelFileField.setText(chooser.getSelectedFile().getPath());
+                }
+            }
+        });
+
         single.addActionListener(new ActionListener() {
             public void actionPerformed(ActionEvent e) {
                 try {
@@ -104,7 +146,14 @@ public class Launcher extends JFrame {
                     data.fillInteger("levelHeight", levelHeightField.getText());
                     data.fillInteger("players", playersField.getText());
                     data.fillString("generatorType", (String) generatorTypeBox.getSelectedItem());
+                    data.fillBoolean("fastGeneration", fastGenerationCheck.isSelected());
                     data.fillBoolean("endAt50", endAt50Check.isSelected());
+                    data.fillString("ai", (String) aiBox.getSelectedItem());
+                    data.fillInteger("playouts", playoutsField.getText());
+                    if (data.getInteger("playouts") <= 0) throw new NumberFormatException();
+                    data.fillString("levelFile", levelFileField.getText());
+                    data.fillString("seed", seedField.getText());
+                    data.fillString("journalFile", journalField.getText());
 
                     // Parsing colors
                     String[] colorsR = colorsField.getText().split(" ");
@@ -113,9 +162,6 @@ public class Launcher extends JFrame {
                         data.fillInteger("color" + i, Integer.parseInt(colorsR[i], 16));
                     }
 
-                    // Resetting randomizer
-                    Util.updateRandom(seedField.getText());
-
                     new SinglePlayer(width, height, data);
                 } catch (Exception ex) {
                     debug.println("Error: wrong input!");
@@ -138,9 +184,6 @@ public class Launcher extends JFrame {
                     data.fillString("address", addressField.getText());
                     data.fillInteger("port", portField.getText());
 
-                    // Resetting randomizer
-                    Util.updateRandom(seedField.getText());
-
                     new Client(width, height, data);
                 } catch (Exception ex) {
                     debug.println("Error: wrong input!");
@@ -163,7 +206,11 @@ public class Launcher extends JFrame {
                     data.fillInteger("levelHeight", levelHeightField.getText());
                     data.fillInteger("players", playersField.getText());
                     data.fillString("generatorType", (String) generatorTypeBox.getSelectedItem());
+                    data.fillBoolean("fastGeneration", fastGenerationCheck.isSelected());
                     data.fillBoolean("endAt50", endAt50Check.isSelected());
+                    data.fillString("levelFile", levelFileField.getText());
+                    data.fillString("seed", seedField.getText());
+                    data.fillString("journalFile", journalField.getText());
 
                     String[] colorsR = colorsField.getText().split(" ");
                     data.fillInteger("colors", colorsR.length);
@@ -171,9 +218,6 @@ public class Launcher extends JFrame {
                         data.fillInteger("color" + i, Integer.parseInt(colorsR[i], 16));
                     }
 
-                    // Resetting randomizer
-                    Util.updateRandom(seedField.getText());
-
                     new Server(width, height, data);
                 } catch (Exception ex) {
                     debug.println("Error: wrong input!");
@@ -198,6 +242,24 @@ public class Launcher extends JFrame {
     }
 
     public static void main(String[] args) {
+        // Dedicated server doesn`t need any windows
+        if (args.length > 0 && args[0].equals("--headless")) {
+            HeadlessServer.start(args);
+            return;
+        }
+
+        // Tournament only plays AIs against each other
+        if (args.length > 0 && args[0].equals("--tournament")) {
+            Tournament.start(args);
+            return;
+        }
+
+        // Replay only reads journal
+        if (args.length > 0 && args[0].equals("--replay")) {
+            Replay.start(args);
+            return;
+        }
+
         new Launcher();
     }
 
@@ -0,0 +1,302 @@
+package dyatel.terracontrol;
+
+import dyatel.terracontrol.level.CellMaster;
+import dyatel.terracontrol.level.SPLevel;
+import dyatel.terracontrol.level.ai.AI;
+import dyatel.terracontrol.level.ai.GameState;
+import dyatel.terracontrol.level.ai.RegionGraph;
+import dyatel.terracontrol.level.generation.Generator;
+import dyatel.terracontrol.util.DataArray;
+import dyatel.terracontrol.util.Debug;
+import dyatel.terracontrol.util.ErrorLogger;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class Tournament {
+
+    // Plays many AI-vs-AI games without windows, one game per worker thread.
+    // Every game depends only on tournament seed and its index, so any game can be replayed alone with --game.
+    // Games are played on snapshot of level and stop as soon as winner is decided, so turns and cells are counted then, not at level game end.
+
+    private static final String usage = "Usage: --tournament [--generator=Fill,Point] [--size=55x28] [--colors=ff0000,00ff00,0000ff] " +
+            "[--players=2] [--ai=Search,Greedy] [--games=100] [--seed=] [--threads=cores] [--depth=4] [--playouts=20000] [--endAt50=true] " +
+            "[--out=tournament.csv] [--game=-1]";
+
+    private Debug debug = Debug.tournamentDebug; // Output
+
+    private String[] generators; // Generators, game uses them in turn
+    private String[] ais; // AIs, they change seats every game
+    private int width, height; // Level size
+    private int[] colors; // Level colors
+    private int players; // Players in every game
+    private int depth; // Depth of search AI
+    private int playouts; // Playouts of MCTS AI per turn
+    private boolean endAt50; // Game ends when someone captures a half
+
+    private String seed; // Tournament seed
+
+    public Tournament(HashMap<String, String> options) {
+        generators = options.get("generator").split(",");
+        ais = options.get("ai").split(",");
+        String[] size = options.get("size").split("x");
+        width = Integer.parseInt(size[0]);
+        height = Integer.parseInt(size[1]);
+        players = Integer.parseInt(options.get("players"));
+        depth = Integer.parseInt(options.get("depth"));
+        playouts = Integer.parseInt(options.get("playouts"));
+        endAt50 = Boolean.parseBoolean(options.get("endAt50"));
+
+        String[] colorsR = options.get("colors").split(",");
+        colors = new int[colorsR.length];
+        for (int i = 0; i < colorsR.length; i++) colors[i] = Integer.parseInt(colorsR[i], 16);
+
+        // Empty seed is replaced by random one, it`s printed so tournament can be repeated
+        seed = options.get("seed");
+        if (seed.equals("")) seed = String.valueOf(new Random().nextLong());
+    }
+
+    public void run(int games, int onlyGame, int threads, String out) throws Exception {
+        debug.println("Seed: " + seed + ", " + (onlyGame == -1 ? games + " games" : "game " + onlyGame) + " on " + threads + " threads");
+        long start = System.nanoTime();
+
+        // Starting games, results are collected in game order so output doesn`t depend on thread timing
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayList<Future<Result>> futures = new ArrayList<Future<Result>>();
+        for (int i = 0; i < games; i++) {
+            if (onlyGame != -1 && i != onlyGame) continue;
+
+            final int game = i;
+            futures.add(pool.submit(new Callable<Result>() {
+                public Result call() {
+                    // Broken game is written as failed, other games go on
+                    try {
+                        return play(game);
+                    } catch (Exception e) {
+                        ErrorLogger.add(e);
+                        Result result = new Result(game);
+                        result.error = e.toString();
+                        return result;
+                    }
+                }
+            }));
+        }
+
+        LinkedHashMap<String, int[]> scores = new LinkedHashMap<String, int[]>(); // Games, wins and draws of every AI
+        for (String ai : ais) scores.put(ai, new int[3]);
+        int failed = 0;
+        PrintWriter writer = null;
+        try {
+            writer = new PrintWriter(new BufferedWriter(new FileWriter(out)));
+            writer.println(header());
+            for (Future<Result> future : futures) {
+                Result result = future.get();
+                writer.println(result.toCSV());
+                if (result.error != null) {
+                    failed++;
+                    continue;
+                }
+
+                for (int p = 0; p < players; p++) {
+                    int[] score = scores.get(result.ais[p]);
+                    score[0]++;
+                    if (result.winner == p) score[1]++;
+                    if (result.winner == -1) score[2]++;
+                }
+            }
+        } finally {
+            if (writer != null) writer.close();
+            pool.shutdownNow(); // Nothing is left to play if results aren`t collected
+        }
+
+        for (String ai : scores.keySet()) {
+            int[] score = scores.get(ai);
+            debug.println(ai + ": " + score[1] + " wins, " + score[2] + " draws in " + score[0] + " seats, win rate " + (score[0] > 0 ? score[1] * 100 / score[0] : 0) + "%");
+        }
+        if (failed > 0) debug.println(failed + " games failed, errors are in error log");
+        debug.println("Done in " + (System.nanoTime() - start) / 1000000 + " ms, results are in " + out);
+    }
+
+    private Result play(int game) {
+        Result result = new Result(game);
+        long start = System.nanoTime();
+
+        // Level and AIs take randomizers only from game seed, so games don`t depend on each other
+        DataArray data = new DataArray();
+        data.fillInteger("levelWidth", width);
+        data.fillInteger("levelHeight", height);
+        data.fillInteger("players", players);
+        data.fillString("generatorType", result.generator);
+        data.fillBoolean("fastGeneration", true);
+        data.fillBoolean("endAt50", endAt50);
+        data.fillInteger("playouts", playouts);
+        data.fillString("seed", result.seed);
+        data.fillInteger("colors", colors.length);
+        for (int i = 0; i < colors.length; i++) data.fillInteger("color" + i, colors[i]);
+        SPLevel level = new SPLevel(data, Debug.noDebug);
+
+        AI[] seats = new AI[players];
+        for (int p = 0; p < players; p++) seats[p] = AI.parseAI(result.ais[p], 0, depth, playouts, 1, level.getSeed());
+
+        while (level.getState() == 0) level.update();
+        result.generateTime = System.nanoTime() - start;
+
+        // Nobody clicks on level, players get random free masters
+        Random random = new Random(result.seed.hashCode());
+        if (level.getMasters().size() < players) throw new IllegalStateException("Level has only " + level.getMasters().size() + " masters");
+        while (level.getState() == 1) {
+            CellMaster master = level.getMaster(random.nextInt(width), random.nextInt(height));
+            level.placePlayer(master);
+        }
+        level.processUpdates();
+
+        RegionGraph graph = new RegionGraph(level);
+        result.regions = graph.getRegions();
+        result.firstPlayer = level.getCurrentPlayer();
+
+        // Playing on snapshot, it has same rules as level and is much faster
+        GameState state = new GameState(graph, level.getCurrentPlayer());
+        try {
+            while (!state.isOver() && state.getDecidedWinner() == -1) {
+                state.makeTurn(seats[state.getTurn()].chooseTurn(state));
+            }
+        } finally {
+            for (AI seat : seats) seat.close();
+        }
+        result.turns = state.getTurns();
+
+        int max = -1;
+        for (int p = 0; p < players; p++) {
+            result.cells[p] = state.getCells(p);
+            if (result.cells[p] > max) {
+                max = result.cells[p];
+                result.winner = p;
+            } else if (result.cells[p] == max) {
+                result.winner = -1;
+            }
+        }
+
+        result.time = System.nanoTime() - start;
+        return result;
+    }
+
+    private String header() {
+        StringBuilder header = new StringBuilder("game,seed,generator,width,height,regions,meanRegionSize,firstPlayer,turnsToDecision,winner,winnerAI");
+        for (int p = 0; p < players; p++) header.append(",ai").append(p);
+        for (int p = 0; p < players; p++) header.append(",cellsAtDecision").append(p);
+        header.append(",generateMs,totalMs,error");
+        return header.toString();
+    }
+
+    private class Result {
+
+        private int game; // Game index
+        private String seed; // Seed of level
+        private String generator; // Generator type
+        private String[] ais; // AI of every seat
+
+        private int regions; // Regions after generation
+        private int firstPlayer; // Player that made first turn
+        private int turns; // Turns made until winner was decided, skipped ones too
+        private int winner = -1; // Winner seat, -1 if draw
+        private int[] cells; // Cells of every player when winner was decided
+
+        private long generateTime; // Nanoseconds spent on generation
+        private long time; // Nanoseconds spent on whole game
+        private String error; // Why game failed, null if it was played
+
+        private Result(int game) {
+            this.game = game;
+            seed = Tournament.this.seed + "-" + game;
+            generator = generators[game % generators.length];
+            ais = new String[players];
+            for (int p = 0; p < players; p++) ais[p] = Tournament.this.ais[(p + game) % Tournament.this.ais.length];
+            cells = new int[players];
+        }
+
+        private String toCSV() {
+            StringBuilder line = new StringBuilder();
+            line.append(game).append(',').append(seed).append(',').append(generator).append(',').append(width).append(',').append(height);
+            line.append(',').append(regions).append(',').append(regions == 0 ? "" : String.format(Locale.ROOT, "%.2f", (double) width * height / regions));
+            line.append(',').append(firstPlayer).append(',').append(turns).append(',').append(winner).append(',').append(winner == -1 ? "" : ais[winner]);
+            for (int p = 0; p < players; p++) line.append(',').append(ais[p]);
+            for (int p = 0; p < players; p++) line.append(',').append(cells[p]);
+            line.append(',').append(generateTime / 1000000).append(',').append(time / 1000000);
+            line.append(',').append(error == null ? "" : error.replace(',', ';'));
+            return line.toString();
+        }
+
+    }
+
+    public static void start(String[] args) {
+        Debug debug = Debug.tournamentDebug;
+
+        // Things to do on exit
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            public void run() {
+                ErrorLogger.close(); // Filling error log
+            }
+        });
+
+        try {
+            HashMap<String, String> options = new HashMap<String, String>();
+            options.put("generator", "Fill");
+            options.put("size", "55x28");
+            options.put("colors", "ff0000,00ff00,0000ff");
+            options.put("players", "2");
+            options.put("ai", "Search,Greedy");
+            options.put("games", "100");
+            options.put("seed", "");
+            options.put("threads", String.valueOf(Runtime.getRuntime().availableProcessors()));
+            options.put("depth", "4");
+            options.put("playouts", "20000");
+            options.put("endAt50", "true");
+            options.put("out", "tournament.csv");
+            options.put("game", "-1");
+
+            // Parsing arguments like --name=value
+            for (String arg : args) {
+                if (arg.equals("--tournament")) continue;
+                int split = arg.indexOf('=');
+                if (!arg.startsWith("--") || split == -1 || !options.containsKey(arg.substring(2, split))) throw new IllegalArgumentException(arg);
+                options.put(arg.substring(2, split), arg.substring(split + 1));
+            }
+
+            // Checking input before starting anything
+            for (String generator : options.get("generator").split(",")) {
+                if (!contains(Generator.types, generator)) throw new IllegalArgumentException("unknown generator " + generator);
+            }
+            for (String ai : options.get("ai").split(",")) {
+                if (!contains(AI.types, ai)) throw new IllegalArgumentException("unknown AI " + ai);
+            }
+            int games = Integer.parseInt(options.get("games"));
+            int threads = Integer.parseInt(options.get("threads"));
+            if (games <= 0 || threads <= 0 || Integer.parseInt(options.get("players")) <= 0 || Integer.parseInt(options.get("playouts")) <= 0) {
+                throw new IllegalArgumentException("games, threads, players and playouts must be positive");
+            }
+
+            new Tournament(options).run(games, Integer.parseInt(options.get("game")), threads, options.get("out"));
+        } catch (IllegalArgumentException e) {
+            debug.println("Error: wrong input! (" + e.getMessage() + ")");
+            debug.println(usage);
+        } catch (Exception e) {
+            ErrorLogger.add(e);
+        }
+    }
+
+    private static boolean contains(String[] array, String value) {
+        for (String s : array) if (s.equals(value)) return true;
+        return false;
+    }
+
+}
@@ -1,12 +1,12 @@
 package dyatel.terracontrol.input;
 
-import dyatel.terracontrol.level.Level;
+import dyatel.terracontrol.window.LevelView;
 
 import java.awt.event.*;
 
 public class Mouse implements MouseListener, MouseMotionListener, MouseWheelListener {
 
-    private Level level;
+    private LevelView<?> view;
 
     private int x = -1, y = -1;
 
@@ -44,7 +44,7 @@ public class Mouse implements MouseListener, MouseMotionListener, MouseWheelList
     }
 
     public void mouseWheelMoved(MouseWheelEvent e) {
-        if (level != null) level.changeZoom(e.getWheelRotation() * -1);
+        if (view != null) view.changeZoom(e.getWheelRotation() * -1);
     }
 
     public int getX() {
@@ -59,7 +59,7 @@ public class Mouse implements MouseListener, MouseMotionListener, MouseWheelList
         return clicked;
     }
 
-    public void setLevel(Level level) {
-        this.level = level;
+    public void setView(LevelView<?> view) {
+        this.view = view;
     }
 }
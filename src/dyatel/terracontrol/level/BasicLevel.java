@@ -1,167 +1,275 @@
 package dyatel.terracontrol.level;
 
-import dyatel.terracontrol.input.Keyboard;
-import dyatel.terracontrol.input.Mouse;
 import dyatel.terracontrol.network.Player;
 import dyatel.terracontrol.util.DataArray;
 import dyatel.terracontrol.util.Debug;
-import dyatel.terracontrol.window.GameWindow;
-import dyatel.terracontrol.window.Screen;
+import dyatel.terracontrol.util.ErrorLogger;
+import dyatel.terracontrol.util.Util;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 public abstract class BasicLevel implements Level {
 
-    protected GameWindow window; // Main window
+    // Game rules only, level knows nothing about windows, so it can be run without them
+
     protected Debug debug; // Output
 
     protected int state = -1; // See values in inherited classes
 
     protected boolean initialized = false; // Is level initialized
 
-    protected int xOff, yOff; // Level offset
-    protected int scrollRate = 10; // Pixels per update
-
-    protected int cellSize; // Cell side in pixels
-    protected double zoom; // Zoom
-    protected double zoomStep = 0.5; // Zoom change
-
     protected int width, height; // Level size in cells
 
-    protected Keyboard keyboard; // Keyboard listener
-    protected int keyDelay; // Timer that restricts pressing a key every update (60 times per second!)
-    protected boolean[] keys; // Keyboard keys state
-
-    protected Mouse mouse; // Mouse listener
-    protected int mouseX, mouseY; // Real mouse coordinates based on position in window
-    protected int mouseLX, mouseLY; // Mouse coordinates used on level
-
     protected ArrayList<CellMaster> masters; // List of masters
-    protected ArrayList<Updatable> needUpdate; // List of updatable objects that want update
+    protected RegionSet regions; // Masters merged into regions
+    protected UpdateQueue needUpdate; // Updatable objects that want update
 
-    protected Cell[] cells; // Field
+    protected int[] grid; // Field, region node of every cell (x + y * width) or -1 if there is no cell
 
     protected Player[] players; // Players
 
+    protected boolean endAt50; // Game will end when someone captures more than a half of field if true
+    protected int capturedCells = 0; // Cells controlled by all players
+    protected boolean levelCaptured = false; // True if game end condition was reached
+
     protected int[] colors; // Available colors for cells
 
-    protected BasicLevel(GameWindow window) {
-        this.window = window;
-        debug = window.getDebug();
+    protected File levelFile; // Generated level is saved there, null if it`s not needed
+    protected String loadedFrom; // Level file that level was loaded from, null if it was generated
 
-        // Getting and initializing input
-        keyboard = window.getKeyboard();
-        mouse = window.getMouse();
-        mouse.setLevel(this);
+    protected long seed; // Seed of level randomizers, generation depends only on it
+    protected TurnJournal journal; // Everything players do is written there, null if it`s not needed
+    private String journalPath; // Journal file or directory, it`s opened when first player is placed, null if it`s opened or not needed
+    private String generatorType; // Generator that made level, written to journal
+
+    protected LevelListener listener; // View that draws changed cells, null if nobody draws us
+
+    protected BasicLevel(Debug debug) {
+        this.debug = debug;
 
         masters = new ArrayList<CellMaster>();
-        needUpdate = new ArrayList<Updatable>();
+        regions = new RegionSet();
+        needUpdate = new UpdateQueue();
     }
 
     public final void init(DataArray data) {
+        seed = Util.parseSeed(data.getString("seed"));
         preInit(data);
 
-        // Zooming level to match window size
-        cellSize = 2;
-        zoom = zoomStep;
-        while (getFieldWidth() <= window.getWidth() && getFieldHeight() <= window.getFieldHeight()) {
-            zoom += zoomStep;
-        }
-        if (zoom > zoomStep) zoom -= zoomStep;
-
-        // Finding right offset
-        correctOffset();
-
+        // Pooled levels wait for their game, so journal isn`t opened before game starts
+        journalPath = data.getString("journalFile");
+        generatorType = data.getString("generatorType");
         initialized = true;
     }
 
     protected abstract void preInit(DataArray data);
 
-    public final void update() {
-        // Updating input
-        // Updating key delay, getting key state
-        if (keyDelay > -1) keyDelay--;
-        keys = keyboard.getKeys();
-
-        // Updating mouse coordinates and printing them
-        mouseX = mouse.getX();
-        mouseY = mouse.getY();
-        if (mouseX > -1 && mouseY > -1 && mouseY < window.getFieldHeight()) {
-            mouseLX = (mouseX + xOff) / (getCellSize() + 1);
-            mouseLY = (mouseY + yOff) / (getCellSize() + 1);
-        } else {
-            // If mouse is out of bounds
-            mouseLX = -1;
-            mouseLY = -1;
-        }
-        window.statusBar[2] = mouseLX + " " + mouseLY;
+    protected void createField() {
+        grid = new int[width * height];
+        Arrays.fill(grid, -1); // Field is empty
+    }
 
-        // Updating offset if needed
-        if (keys[Keyboard.KEY_LEFT]) changeXOff(-scrollRate);
-        if (keys[Keyboard.KEY_UP]) changeYOff(-scrollRate);
-        if (keys[Keyboard.KEY_RIGHT]) changeXOff(scrollRate);
-        if (keys[Keyboard.KEY_DOWN]) changeYOff(scrollRate);
+    public final void update() {
+        if (!initialized) return;
 
-        // Changing zoom by keyboard
-        if (keys[Keyboard.KEY_PLUS]) changeZoom(1);
-        if (keys[Keyboard.KEY_MINUS]) changeZoom(-1);
+        processUpdates();
 
-        if (!initialized) return;
+        // Server/client update
+        sideUpdate();
+    }
 
+    public void processUpdates() {
         // Update-on-demand
-        while (needUpdate.size() > 0) {
-            Updatable u = needUpdate.get(0);
-            if (u != null && !u.isRemoved()) {
+        while (!needUpdate.isEmpty()) {
+            Updatable u = needUpdate.poll();
+            if (!u.isRemoved()) {
                 u.update();
             } else {
-                if (u instanceof CellMaster) masters.remove(u);
+                if (u instanceof CellMaster) remove((CellMaster) u);
             }
-            needUpdate.remove(0);
         }
-
-        // Server/client update
-        sideUpdate();
     }
 
     // One-side update, specific for client and server
     protected abstract void sideUpdate();
 
-    public abstract void preRender(Screen screen);
-
-    public abstract void postRender(Screen screen);
-
     public boolean canSetCell(int x, int y) {
         // If this coordinates belong to level and there is no cell, returning true
-        return x >= 0 && x < width && y >= 0 && y < height && getCell(x, y) == null;
+        return x >= 0 && x < width && y >= 0 && y < height && grid != null && grid[x + y * width] == -1;
     }
 
-    public void setCell(Cell cell) {
-        cells[cell.getX() + cell.getY() * width] = cell;
+    public void buildRegions(int[] colors) {
+        RegionBuilder.build(this, colors);
     }
 
-    public Cell getCell(int x, int y) {
-        if (x < 0 || x >= width || y < 0 || y >= height) {
-            return null; // If out of bounds
+    protected boolean loadLevel(String path) {
+        // Level is loaded if file exists, otherwise generated level will be saved there
+        if (path == null || path.equals("")) return false;
+        File file = new File(path);
+        if (!file.exists()) {
+            levelFile = file;
+            return false;
+        }
+
+        try {
+            long start = System.nanoTime();
+            LevelFile level = LevelFile.load(file);
+            width = level.getWidth();
+            height = level.getHeight();
+            colors = level.getPalette();
+            createField();
+            level.build(this);
+            loadedFrom = path;
+            debug.println("Loaded level " + width + "x" + height + " with " + level.getRegionCount() + " masters in " + (System.nanoTime() - start) / 1000000 + " ms");
+            return true;
+        } catch (IOException e) {
+            debug.println("Can`t load level: " + e.getMessage() + ", generating new one");
+            levelFile = file; // Broken file is replaced
+            return false;
+        }
+    }
+
+    protected void saveLevel() {
+        if (levelFile == null) return;
+
+        try {
+            LevelFile.save(this, levelFile);
+            debug.println("Saved level to " + levelFile);
+        } catch (IOException e) {
+            ErrorLogger.add(e);
         }
-        return cells == null ? null : cells[x + y * width];
+        levelFile = null;
+    }
+
+    private void openJournal() {
+        // Directory gets new file for every game
+        String path = journalPath;
+        journalPath = null;
+        if (path == null || path.equals("")) return;
+        File file = new File(path);
+        if (file.isDirectory()) {
+            File dir = file;
+            long time = System.currentTimeMillis();
+            for (int i = 0; file.isDirectory() || file.exists(); i++) file = new File(dir, "game-" + time + (i == 0 ? "" : "-" + i) + ".tcj");
+        }
+
+        try {
+            // Replay may be run from other directory, so level file is found by absolute path
+            String levelFile = loadedFrom == null ? null : new File(loadedFrom).getAbsolutePath();
+            journal = new TurnJournal(file, this, loadedFrom == null ? generatorType : null, levelFile);
+            debug.println("Writing journal to " + file);
+        } catch (IOException e) {
+            debug.println("Can`t write journal: " + e.getMessage());
+            ErrorLogger.add(e);
+        }
+    }
+
+    public void onTurn(Player player, int colorID) {
+        if (journal == null) return;
+
+        try {
+            journal.turn(player.getID(), player.getTurns(), colorID);
+        } catch (IOException e) {
+            ErrorLogger.add(e);
+            journal = null; // Broken journal is useless
+        }
+    }
+
+    protected void onPlayerPlaced(Player player) {
+        if (journalPath != null) openJournal();
+        if (journal == null) return;
+
+        try {
+            journal.placed(player.getID(), player.getMaster().getID());
+        } catch (IOException e) {
+            ErrorLogger.add(e);
+            journal = null;
+        }
+    }
+
+    protected void closeJournal() {
+        if (journal == null) return;
+
+        try {
+            journal.close();
+        } catch (IOException e) {
+            ErrorLogger.add(e);
+        }
+        journal = null;
+    }
+
+    public void areaChanged(int x1, int y1, int x2, int y2) {
+        if (listener != null) listener.areaChanged(x1, y1, x2, y2);
+    }
+
+    public void setListener(LevelListener listener) {
+        this.listener = listener;
+    }
+
+    public void setCell(int x, int y, CellMaster master) {
+        int cell = x + y * width;
+        grid[cell] = master.getNode();
+        master.addCell(cell);
+    }
+
+    public Cell getCell(int x, int y) {
+        if (getMaster(x, y) == null) return null; // If out of bounds or there is no cell
+        return new Cell(x, y, this);
     }
 
     public CellMaster getMaster(int x, int y) {
-        // Safe method to get masters without checking cells
-        if (getCell(x, y) == null) return null;
-        return getCell(x, y).getMaster();
+        // Safe method to get masters without creating cells
+        if (x < 0 || x >= width || y < 0 || y >= height || grid == null) {
+            return null; // If out of bounds
+        }
+        int node = grid[x + y * width];
+        return node == -1 ? null : regions.getMaster(node);
     }
 
     public void add(CellMaster u) {
+        u.setIndex(masters.size());
         masters.add(u);
     }
 
+    private void remove(CellMaster u) {
+        int index = u.getIndex();
+        if (index == -1) return; // Already removed
+
+        // Moving last master into our place, so list doesn`t need to shift
+        CellMaster last = masters.remove(masters.size() - 1);
+        if (last != u) {
+            masters.set(index, last);
+            last.setIndex(index);
+        }
+        u.setIndex(-1);
+    }
+
+    public RegionSet getRegions() {
+        return regions;
+    }
+
     public void needUpdate(Updatable u) {
-        if (!needUpdate.contains(u)) needUpdate.add(u);
+        needUpdate.add(u);
+    }
+
+    public void cellsCaptured(CellMaster master, int cells) {
+        capturedCells += cells;
+        if (levelCaptured) return;
+
+        // Only this master changed, so only its player can cross a half of field
+        if ((endAt50 && master.getCellCount() > width * height / 2) || capturedCells == width * height) {
+            debug.println("Captured level!");
+            levelCaptured = true;
+            onLevelCaptured();
+        }
     }
 
-    public int getCellSize() {
-        return (int) (cellSize * zoom);
+    // Called once when someone captures enough cells to end the game
+    protected void onLevelCaptured() {
+
     }
 
     public int getWidth() {
@@ -184,69 +292,35 @@ public abstract class BasicLevel implements Level {
         this.state = state;
     }
 
-    public int getColorID(int color) {
-        for (int i = 0; i < colors.length; i++) {
-            if (colors[i] == color) return i;
-        }
-        return -1;
+    public int getState() {
+        return state;
     }
 
-    private int getFieldWidth() {
-        return width * (getCellSize() + 1) - 1; // Returns field width in pixels
+    public long getSeed() {
+        return seed;
     }
 
-    private int getFieldHeight() {
-        return height * (getCellSize() + 1) - 1; // Returns field height in pixels
+    public boolean isInitialized() {
+        return initialized;
     }
 
-    public void changeXOff(int dx) {
-        // Changing offset without going out of bounds
-        xOff += dx;
-        correctOffset();
+    public Player getPlayer(int id) {
+        return players[id];
     }
 
-    public void changeYOff(int dy) {
-        // Changing offset without going out of bounds
-        yOff += dy;
-        correctOffset();
+    public int getPlayers() {
+        return players.length;
     }
 
-    private void correctOffset() {
-        // Checking bounds and if field fits on the screen, centring it
-        int minXOff = Math.min((window.getWidth() - getFieldWidth()) / -2, 0);
-        int maxXOff = Math.max(getFieldWidth() - window.getWidth(), minXOff);
-        if (xOff < minXOff) xOff = minXOff;
-        if (xOff > maxXOff) xOff = maxXOff;
-
-        int minYOff = Math.min((window.getFieldHeight() - getFieldHeight()) / -2, 0);
-        int maxYOff = Math.max(getFieldHeight() - window.getFieldHeight(), minYOff);
-        if (yOff < minYOff) yOff = minYOff;
-        if (yOff > maxYOff) yOff = maxYOff;
+    public boolean isEndAt50() {
+        return endAt50;
     }
 
-    public void changeZoom(int n) {
-        // Checking if field fits and we don`t need to zoom it further
-        if (n == -1 && getFieldWidth() <= window.getWidth() && getFieldHeight() <= window.getFieldHeight()) return;
-
-        double pZoom = zoom; // Saving previous zoom
-        zoom += n * zoomStep;
-
-        // Checking if zoomed too much
-        if (getCellSize() < 1) {
-            zoom = pZoom;
-            return;
+    public int getColorID(int color) {
+        for (int i = 0; i < colors.length; i++) {
+            if (colors[i] == color) return i;
         }
-
-        double diff = ((cellSize * zoom) - (cellSize * pZoom)); // Cell size change
-        // How many cells changed their size
-        int cellsX = (int) ((xOff + window.getWidth() / 2) / ((cellSize * pZoom) + 1));
-        int cellsY = (int) ((yOff + window.getFieldHeight() / 2) / ((cellSize * pZoom) + 1));
-        changeXOff((int) (cellsX * diff)); // Centring x offset
-        changeYOff((int) (cellsY * diff)); // Centring y offset
-    }
-
-    public GameWindow getWindow() {
-        return window;
+        return -1;
     }
 
     public Debug getDebug() {
@@ -1,39 +1,23 @@
 package dyatel.terracontrol.level;
 
-import dyatel.terracontrol.window.Screen;
-
 public class Cell {
 
-    private int x, y; // Coordinates on level
+    // Field is stored by level as array of region nodes, cells are only created when someone asks for them
 
-    private CellMaster master; // Cell`s master
+    private int x, y; // Coordinates on level
 
     private Level level; // Cell`s level
 
     public Cell(int x, int y, CellMaster master) {
-        this.x = x;
-        this.y = y;
-
-        level = master.getLevel(); // Getting level
-        level.setCell(this); // Adding us to level
+        this(x, y, master.getLevel());
 
-        master.addCell(this); // Adding us to master`s list
+        level.setCell(x, y, master); // Adding us to level
     }
 
-    public void render(Screen screen, int color) {
-        int cellSize = level.getCellSize();
-        int xp = x * (cellSize + 1); // Where to draw
-        int yp = y * (cellSize + 1);
-        int width = cellSize;
-        int height = cellSize;
-
-        if (master.getOwner() != null) {
-            // Connecting with right and bottom cells if we have same owner
-            if (level.getMaster(x + 1, y) == master) width++;
-            if (level.getMaster(x, y + 1) == master) height++;
-        }
-
-        screen.render(xp, yp, xp + width, yp + height, color, true); // Rendering
+    Cell(int x, int y, Level level) {
+        this.x = x;
+        this.y = y;
+        this.level = level;
     }
 
     public int getX() {
@@ -44,12 +28,8 @@ public class Cell {
         return y;
     }
 
-    public void setMaster(CellMaster master) {
-        this.master = master;
-    }
-
     public CellMaster getMaster() {
-        return master;
+        return level.getMaster(x, y);
     }
 
 }
@@ -1,92 +1,187 @@
 package dyatel.terracontrol.level;
 
 import dyatel.terracontrol.network.Player;
-import dyatel.terracontrol.util.Util;
+import dyatel.terracontrol.util.IntList;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 public class CellMaster implements Updatable {
 
     private int color; // Color of master
 
     private int id; // ID
+    private int node; // Node in level`s region set
+    private int index = -1; // Position in level`s master list
 
-    private ArrayList<Cell> newCells = new ArrayList<Cell>(); // Cells that we need to main list
-    private ArrayList<Cell> cells = new ArrayList<Cell>(); // Main cell list
-    private ArrayList<Cell> borderCells = new ArrayList<Cell>(); // Cells that touch different masters
+    // Cells are stored as indexes in level field (x + y * width)
+    private IntList newCells = new IntList(); // Cells that were added after last update
+    private IntList borderCells = new IntList(); // Cells that touch different masters, inner cells are removed lazily
 
-    private ArrayList<CellMaster> neighbors = new ArrayList<CellMaster>(); // Masters touching our border
+    private LinkedHashSet<CellMaster> neighbors = new LinkedHashSet<CellMaster>(); // Masters touching our border
+    private ArrayList<CellMaster> mergeCandidates = new ArrayList<CellMaster>(); // Neighbors that may have our color
+    private ArrayList<CellMaster> ownedNeighbors = new ArrayList<CellMaster>(); // Neighbors controlled by players
+
+    private int[] capturable; // Cells of free neighbors by color ID, only for owned masters
+
+    private int left = Integer.MAX_VALUE, top = Integer.MAX_VALUE, right = 0, bottom = 0; // Bounds of our cells, right and bottom are exclusive
 
     private Player owner = null; // Player that controls us
 
     private Level level; // Level
 
     private boolean removed = false; // Are we removed from level
-
-    public CellMaster(Level level) {
-        init(Util.getRandom().nextInt(level.getColors().length), level);
-    }
+    private boolean queued = false; // Are we waiting for update
 
     public CellMaster(int colorID, Level level) {
-        init(colorID, level);
-    }
-
-    private void init(int colorID, Level level) {
         color = colorID;
         this.level = level;
 
+        node = level.getRegions().add(this);
         level.add(this);
     }
 
     private void merge(CellMaster master) {
-        cells.addAll(newCells); // We must not ignore new cells if we haven`t been updated
-        master.addCells(cells); // Just giving cells, cause we`ll be deleted and other master already has right color and owner
+        int cells = getCellCount(); // Cells that master will get
+
+        // Joining regions, cells will find new master through region set without rewriting them
+        level.getRegions().union(node, master.node, master);
+        master.extendBounds(left, top, right, bottom);
+
+        // Players around master can capture more now
+        if (master.owner == null) {
+            for (CellMaster neighbor : master.ownedNeighbors) neighbor.addCapturable(master.color, cells);
+        } else {
+            level.cellsCaptured(master, cells);
+        }
+
+        // Giving border to master, appending smaller list to bigger one
+        if (borderCells.size() > master.borderCells.size()) {
+            IntList t = borderCells;
+            borderCells = master.borderCells;
+            master.borderCells = t;
+        }
+        master.borderCells.addAll(borderCells);
+        master.newCells.addAll(newCells); // Master must not ignore new cells if we haven`t been updated
+
+        // Replacing us with master in lists of our neighbors
+        for (CellMaster neighbor : neighbors) {
+            neighbor.neighbors.remove(this);
+            neighbor.onUnlinked(this, cells);
+            if (neighbor != master) {
+                master.link(neighbor);
+                master.mergeCandidates.add(neighbor); // Our neighbors may have master`s color
+            }
+        }
+        level.needUpdate(master);
+        master.changed();
 
         remove(); // Removing ourselves because we merged with other master
     }
 
-    private void checkNeighbor(int x, int y) {
+    private boolean canMerge(CellMaster neighbor) {
+        return neighbor != this && neighbor.getColorID() == color && neighbor.getOwner() == null && !neighbor.isRemoved();
+    }
+
+    void link(CellMaster neighbor) {
+        if (!neighbors.add(neighbor)) return; // Already linked
+
+        neighbor.neighbors.add(this);
+        onLinked(neighbor);
+        neighbor.onLinked(this);
+    }
+
+    private void onLinked(CellMaster neighbor) {
+        if (neighbor.owner != null) {
+            ownedNeighbors.add(neighbor);
+        } else {
+            addCapturable(neighbor.color, neighbor.getCellCount());
+        }
+    }
+
+    private void onUnlinked(CellMaster neighbor, int cells) {
+        if (neighbor.owner != null) {
+            ownedNeighbors.remove(neighbor);
+        } else {
+            addCapturable(neighbor.color, -cells);
+        }
+    }
+
+    private void addCapturable(int colorID, int cells) {
+        if (capturable != null && colorID >= 0 && colorID < capturable.length) capturable[colorID] += cells;
+    }
+
+    private boolean checkNeighbor(int x, int y) {
         CellMaster neighbor = level.getMaster(x, y);
+        if (neighbor == this) return false; // Same region, not a border
+
         if (neighbor != null) {
-            if (neighbor != this && neighbor.getColorID() == color && neighbor.getOwner() == null && !neighbor.isRemoved()) {
+            if (canMerge(neighbor)) {
                 neighbor.merge(this); // Merging with neighbor if needed
             } else {
-                if (!neighbors.contains(neighbor) && neighbor != this) neighbors.add(neighbor);
+                link(neighbor);
             }
         }
+        return true;
+    }
+
+    private boolean isBorder(int cell) {
+        int width = level.getWidth();
+        int x = cell % width;
+        int y = cell / width;
+        return level.getMaster(x - 1, y) != this ||
+                level.getMaster(x, y - 1) != this ||
+                level.getMaster(x + 1, y) != this ||
+                level.getMaster(x, y + 1) != this;
     }
 
     public void update() {
-        // Updating while updates change something
-        do {
+        int width = level.getWidth();
+
+        // Updating while updates change something, only new cells and their neighbors are checked
+        while (!removed && (newCells.size() > 0 || mergeCandidates.size() > 0)) {
+            // Merging neighbors that got our color
+            while (mergeCandidates.size() > 0) {
+                CellMaster candidate = mergeCandidates.remove(mergeCandidates.size() - 1);
+                if (canMerge(candidate)) candidate.merge(this);
+            }
+
             // Adding all new cells
-            cells.addAll(newCells);
-            newCells.clear();
+            IntList cells = newCells;
+            newCells = new IntList();
+            for (int i = 0; i < cells.size(); i++) {
+                int cell = cells.get(i);
+                int x = cell % width;
+                int y = cell / width;
 
-            // Recalculating borders
-            neighbors.clear();
-            borderCells.clear();
-            for (Cell cell : cells) {
                 // If at least one cell contacts with other master (or no master) then it`s placed on border
-                if (level.getMaster(cell.getX() - 1, cell.getY()) != this ||
-                        level.getMaster(cell.getX(), cell.getY() - 1) != this ||
-                        level.getMaster(cell.getX() + 1, cell.getY()) != this ||
-                        level.getMaster(cell.getX(), cell.getY() + 1) != this) {
-                    borderCells.add(cell); // Need this to generate level
-
-                    // Finding neighbors
-                    checkNeighbor(cell.getX(), cell.getY() - 1);
-                    checkNeighbor(cell.getX() + 1, cell.getY());
-                    checkNeighbor(cell.getX(), cell.getY() + 1);
-                    checkNeighbor(cell.getX() - 1, cell.getY());
-                }
+                boolean border = checkNeighbor(x, y - 1);
+                border |= checkNeighbor(x + 1, y);
+                border |= checkNeighbor(x, y + 1);
+                border |= checkNeighbor(x - 1, y);
+                if (border) borderCells.add(cell); // Need this to generate level
             }
-        } while (newCells.size() > 0); // We should update at least one time to find neighbors
+        }
     }
 
     public void setColorID(int color) {
+        // Moving our cells to other color for players around us
+        if (owner == null) {
+            int cells = getCellCount();
+            for (CellMaster neighbor : ownedNeighbors) {
+                neighbor.addCapturable(this.color, -cells);
+                neighbor.addCapturable(color, cells);
+            }
+        }
+
         this.color = color;
+
+        // Any neighbor can have our new color now
+        mergeCandidates.clear();
+        mergeCandidates.addAll(neighbors);
         level.needUpdate(this);
+        changed();
     }
 
     public int getColorID() {
@@ -102,30 +197,85 @@ public class CellMaster implements Updatable {
     }
 
     public void setOwner(Player owner) {
+        if (this.owner != null || owner == null) {
+            this.owner = owner;
+            return;
+        }
+
+        // We are not free anymore, players around us can`t capture our cells
+        int cells = getCellCount();
+        for (CellMaster neighbor : ownedNeighbors) neighbor.addCapturable(color, -cells);
+        for (CellMaster neighbor : neighbors) neighbor.ownedNeighbors.add(this);
+
         this.owner = owner;
+        level.cellsCaptured(this, cells);
+        changed();
+
+        // Counting cells that we can capture
+        capturable = new int[level.getColors().length];
+        for (CellMaster neighbor : neighbors) {
+            if (neighbor.owner == null) addCapturable(neighbor.color, neighbor.getCellCount());
+        }
     }
 
     public Player getOwner() {
         return owner;
     }
 
-    public void addCells(ArrayList<Cell> cells) {
-        for (Cell cell : cells) cell.setMaster(this);
-        newCells.addAll(cells);
+    public void addCell(int cell) {
+        level.getRegions().addCells(node, 1);
+        if (owner == null) {
+            for (CellMaster neighbor : ownedNeighbors) neighbor.addCapturable(color, 1);
+        } else {
+            level.cellsCaptured(this, 1);
+        }
+        newCells.add(cell);
         level.needUpdate(this);
+
+        int x = cell % level.getWidth();
+        int y = cell / level.getWidth();
+        extendBounds(x, y, x + 1, y + 1);
+        level.areaChanged(x, y, x + 1, y + 1);
     }
 
-    public void addCell(Cell cell) {
-        cell.setMaster(this);
-        newCells.add(cell);
-        level.needUpdate(this);
+    void extendBounds(int x1, int y1, int x2, int y2) {
+        left = Math.min(left, x1);
+        top = Math.min(top, y1);
+        right = Math.max(right, x2);
+        bottom = Math.max(bottom, y2);
+    }
+
+    private void changed() {
+        // All our cells may look different now
+        if (left < right) level.areaChanged(left, top, right, bottom);
     }
 
-    public ArrayList<Cell> getCells() {
-        return cells;
+    public int getCellCount() {
+        if (removed) return 0; // Our cells belong to other master now
+        return level.getRegions().getCells(node);
     }
 
-    public ArrayList<Cell> getBorderCells() {
+    public int getCapturable(int colorID) {
+        if (capturable == null || colorID < 0 || colorID >= capturable.length) return 0;
+        return capturable[colorID];
+    }
+
+    public int getNode() {
+        return node;
+    }
+
+    void addBorderCell(int cell) {
+        borderCells.add(cell);
+    }
+
+    public IntList getBorderCells() {
+        // Dropping cells that became inner after they were added
+        IntList border = new IntList(borderCells.size());
+        for (int i = 0; i < borderCells.size(); i++) {
+            if (isBorder(borderCells.get(i))) border.add(borderCells.get(i));
+        }
+        borderCells = border;
+
         return borderCells;
     }
 
@@ -133,7 +283,7 @@ public class CellMaster implements Updatable {
         return neighbors.contains(master);
     }
 
-    public ArrayList<CellMaster> getNeighbors() {
+    public Set<CellMaster> getNeighbors() {
         return neighbors;
     }
 
@@ -150,4 +300,20 @@ public class CellMaster implements Updatable {
         return removed;
     }
 
+    public boolean isQueued() {
+        return queued;
+    }
+
+    public void setQueued(boolean queued) {
+        this.queued = queued;
+    }
+
+    void setIndex(int index) {
+        this.index = index;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
 }
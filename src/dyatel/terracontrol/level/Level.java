@@ -1,20 +1,15 @@
 package dyatel.terracontrol.level;
 
+import dyatel.terracontrol.network.Player;
 import dyatel.terracontrol.util.Debug;
-import dyatel.terracontrol.window.GameWindow;
-import dyatel.terracontrol.window.Screen;
 
 public interface Level {
 
     public void update();
 
-    public void preRender(Screen screen);
-
-    public void postRender(Screen screen);
-
     public boolean canSetCell(int x, int y);
 
-    public void setCell(Cell cell);
+    public void setCell(int x, int y, CellMaster master);
 
     public Cell getCell(int x, int y);
 
@@ -22,9 +17,15 @@ public interface Level {
 
     public void add(CellMaster u);
 
+    public RegionSet getRegions();
+
     public void needUpdate(Updatable u);
 
-    public int getCellSize();
+    public void cellsCaptured(CellMaster master, int cells);
+
+    public void onTurn(Player player, int colorID);
+
+    public void areaChanged(int x1, int y1, int x2, int y2);
 
     public int getWidth();
 
@@ -32,10 +33,6 @@ public interface Level {
 
     public int[] getColors();
 
-    public void changeZoom(int n);
-
-    public GameWindow getWindow();
-
     public Debug getDebug();
 
 }
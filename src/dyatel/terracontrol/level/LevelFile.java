@@ -0,0 +1,213 @@
+package dyatel.terracontrol.level;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+public class LevelFile {
+
+    // Generated level in binary form, loading it is much faster than generating.
+    // Layout: magic, version, width, height, palette, color of every region, region of every cell, CRC32 of everything before it.
+    // Numbers are varints, cells are stored row by row as runs of same region, run region is a zigzag delta from previous run.
+    // Regions are numbered by master indexes, they match places in level`s master list only until masters are merged or removed.
+
+    public static final int MAGIC = 0x54434C56; // "TCLV"
+    public static final int VERSION = 1; // Current format version
+
+    private int width, height; // Level size
+    private int[] palette; // Colors of level
+    private int[] regionColors; // Color ID of every region
+    private int[] regions; // Region of every cell (x + y * width)
+
+    private LevelFile(int width, int height, int[] palette, int[] regionColors, int[] regions) {
+        this.width = width;
+        this.height = height;
+        this.palette = palette;
+        this.regionColors = regionColors;
+        this.regions = regions;
+    }
+
+    public static void save(BasicLevel level, File file) throws IOException {
+        // Masters are numbered by their place in level`s list, level must not be changed by players yet
+        ArrayList<CellMaster> masters = level.getMasters();
+        for (int i = 0; i < masters.size(); i++) {
+            if (masters.get(i).getIndex() != i) throw new IOException("Level was changed after generation, it can`t be saved");
+        }
+
+        // Sum is counted while bytes are written, so file is never kept in memory
+        CheckedOutputStream out = new CheckedOutputStream(new BufferedOutputStream(Channels.newOutputStream(
+                FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)), 64 * 1024), new CRC32());
+        try {
+            write(out, level);
+            writeInt(out, (int) out.getChecksum().getValue());
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void write(OutputStream out, BasicLevel level) throws IOException {
+        int width = level.getWidth();
+        int height = level.getHeight();
+        int[] palette = level.getColors();
+
+        writeInt(out, MAGIC);
+        writeInt(out, VERSION);
+        writeVarint(out, width);
+        writeVarint(out, height);
+        writeVarint(out, palette.length);
+        for (int color : palette) writeInt(out, color);
+
+        writeVarint(out, level.getMasters().size());
+        for (CellMaster master : level.getMasters()) writeVarint(out, master.getColorID());
+
+        int last = 0; // Region of previous run
+        for (int y = 0; y < height; y++) {
+            int x = 0;
+            while (x < width) {
+                CellMaster master = level.getMaster(x, y);
+                int run = 1;
+                while (x + run < width && level.getMaster(x + run, y) == master) run++;
+
+                int region = master.getIndex();
+                writeVarint(out, (region - last) << 1 ^ (region - last) >> 31);
+                writeVarint(out, run);
+                last = region;
+                x += run;
+            }
+        }
+    }
+
+    public static LevelFile load(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            if (channel.size() < 12 || channel.size() > Integer.MAX_VALUE) throw new IOException("Wrong size of level file");
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            // Checking sum before reading anything
+            int dataSize = buffer.capacity() - 4;
+            CRC32 crc = new CRC32();
+            byte[] chunk = new byte[8192];
+            while (buffer.position() < dataSize) {
+                int length = Math.min(chunk.length, dataSize - buffer.position());
+                buffer.get(chunk, 0, length);
+                crc.update(chunk, 0, length);
+            }
+            if (buffer.getInt() != (int) crc.getValue()) throw new IOException("Level file is damaged");
+            buffer.position(0);
+            buffer.limit(dataSize);
+
+            return read(buffer);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Level file ends too early");
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static LevelFile read(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MAGIC) throw new IOException("Not a level file");
+        int version = buffer.getInt();
+        if (version != VERSION) throw new IOException("Unsupported level file version " + version);
+
+        int width = readVarint(buffer);
+        int height = readVarint(buffer);
+        if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE) throw new IOException("Wrong level size");
+
+        int colors = readVarint(buffer);
+        if (colors <= 0 || colors > buffer.remaining() / 4) throw new IOException("Wrong number of colors");
+        int[] palette = new int[colors];
+        for (int i = 0; i < palette.length; i++) palette[i] = buffer.getInt();
+
+        int count = readVarint(buffer);
+        if (count <= 0 || count > width * height) throw new IOException("Wrong number of regions");
+        int[] regionColors = new int[count];
+        for (int r = 0; r < regionColors.length; r++) {
+            regionColors[r] = readVarint(buffer);
+            if (regionColors[r] < 0 || regionColors[r] >= palette.length) throw new IOException("Wrong color of region " + r);
+        }
+
+        // Unpacking runs, they must not cross row ends
+        int[] regions = new int[width * height];
+        int last = 0;
+        for (int y = 0; y < height; y++) {
+            int x = 0;
+            while (x < width) {
+                int delta = readVarint(buffer);
+                int region = last + (delta >>> 1 ^ -(delta & 1));
+                int run = readVarint(buffer);
+                if (region < 0 || region >= regionColors.length || run <= 0 || x + run > width) throw new IOException("Wrong region run at " + x + " " + y);
+
+                int start = x + y * width;
+                for (int i = start; i < start + run; i++) regions[i] = region;
+                last = region;
+                x += run;
+            }
+        }
+        if (buffer.hasRemaining()) throw new IOException("Unknown data at the end of level file");
+
+        // Every region needs cells, empty master would never be reachable
+        boolean[] used = new boolean[regionColors.length];
+        for (int region : regions) used[region] = true;
+        for (int r = 0; r < used.length; r++) if (!used[r]) throw new IOException("Region " + r + " has no cells");
+
+        return new LevelFile(width, height, palette, regionColors, regions);
+    }
+
+    private static void writeInt(OutputStream out, int value) throws IOException {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static void writeVarint(OutputStream out, int value) throws IOException {
+        // 7 bits per byte, high bit means that more bytes follow
+        while ((value & ~0x7f) != 0) {
+            out.write(value & 0x7f | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(ByteBuffer buffer) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = buffer.get();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Varint is too long");
+    }
+
+    public void build(BasicLevel level) {
+        // Level must have our size and empty field
+        RegionBuilder.build(level, regions, regionColors);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int[] getPalette() {
+        return palette;
+    }
+
+    public int getRegionCount() {
+        return regionColors.length;
+    }
+
+}
@@ -0,0 +1,10 @@
+package dyatel.terracontrol.level;
+
+public interface LevelListener {
+
+    // Whoever shows level, it`s told which cells look different now, so only they are drawn again
+
+    // Rectangle of cells, x2 and y2 are exclusive
+    public void areaChanged(int x1, int y1, int x2, int y2);
+
+}
@@ -0,0 +1,148 @@
+package dyatel.terracontrol.level;
+
+import dyatel.terracontrol.util.DataArray;
+import dyatel.terracontrol.util.Debug;
+import dyatel.terracontrol.util.ErrorLogger;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+public class LevelPool {
+
+    // Keeps few server levels ready, so next game starts without waiting for generation.
+    // Levels are made in background, every generated level is cached on disk under key of its parameters and seed,
+    // so same seed is only generated once. Least recently used files are deleted when cache is full.
+
+    public static final String EXTENSION = ".tcl"; // Extension of cached level files
+
+    private Debug debug; // Output
+
+    private DataArray data; // Parameters of every level
+    private String seed; // Seeds are taken as seed-0, seed-1... or random if it`s empty
+    private int nextSeed = 0; // Number of next seed
+    private Random random = new Random(); // Randomizer for random seeds
+
+    private File cacheDir; // Directory with cached levels
+    private int cacheSize; // Max number of cached files
+    private LinkedHashMap<String, File> cache = new LinkedHashMap<String, File>(16, 0.75f, true); // Cached files in LRU order
+
+    private ArrayBlockingQueue<ServerLevel> ready; // Levels ready to play
+    private ExecutorService refiller; // Makes levels in background
+
+    public LevelPool(DataArray data, int size, File cacheDir, int cacheSize, Debug debug) {
+        this.data = data;
+        this.cacheDir = cacheDir;
+        this.cacheSize = cacheSize;
+        this.debug = debug;
+        seed = data.getString("seed") == null ? "" : data.getString("seed");
+        ready = new ArrayBlockingQueue<ServerLevel>(size);
+
+        // Finding files of previous runs, older ones will be deleted first
+        if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) debug.println("Can`t create level cache " + cacheDir);
+        File[] files = cacheDir.listFiles();
+        if (files != null) {
+            Arrays.sort(files, new Comparator<File>() {
+                public int compare(File a, File b) {
+                    return Long.compare(a.lastModified(), b.lastModified());
+                }
+            });
+            for (File file : files) {
+                String name = file.getName();
+                if (name.endsWith(EXTENSION)) cache.put(name.substring(0, name.length() - EXTENSION.length()), file);
+            }
+            evict();
+        }
+
+        refiller = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Level pool");
+                thread.setDaemon(true); // Pool must not keep server running
+                return thread;
+            }
+        });
+        for (int i = 0; i < size; i++) refill();
+    }
+
+    public ServerLevel take() throws InterruptedException {
+        // Waits only if all ready levels are taken and next one isn`t generated yet
+        ServerLevel level = ready.take();
+        refill();
+        return level;
+    }
+
+    private void refill() {
+        refiller.submit(new Runnable() {
+            public void run() {
+                try {
+                    ready.put(createLevel());
+                } catch (Exception e) {
+                    ErrorLogger.add(e);
+                }
+            }
+        });
+    }
+
+    private ServerLevel createLevel() {
+        String levelSeed = seed.equals("") ? String.valueOf(random.nextLong()) : seed + "-" + nextSeed++;
+        String key = getKey(levelSeed);
+        File file;
+        synchronized (cache) {
+            file = cache.get(key); // Marking file as used
+            if (file == null) file = new File(cacheDir, key + EXTENSION);
+        }
+
+        // Level loads file if it exists, otherwise it generates and saves it
+        DataArray levelData = new DataArray(data);
+        levelData.fillString("levelFile", file.getPath());
+        levelData.fillBoolean("fastGeneration", true);
+        levelData.fillString("seed", levelSeed);
+        ServerLevel level = new ServerLevel(levelData, debug);
+        while (level.getState() == 0) level.update();
+
+        if (file.exists()) {
+            file.setLastModified(System.currentTimeMillis()); // Keeping LRU order for next runs
+            synchronized (cache) {
+                cache.put(key, file);
+                evict();
+            }
+        }
+        debug.println("Level " + key + " is ready");
+        return level;
+    }
+
+    private String getKey(String levelSeed) {
+        // Randomizer depends only on seed hash, so it`s enough for key
+        StringBuilder key = new StringBuilder(data.getString("generatorType"));
+        key.append('-').append(data.getInteger("levelWidth")).append('x').append(data.getInteger("levelHeight"));
+        for (int i = 0; i < data.getInteger("colors"); i++) key.append('-').append(Integer.toHexString(data.getInteger("color" + i)));
+        key.append('-').append(Integer.toHexString(levelSeed.hashCode()));
+        return key.toString();
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, File>> iterator = cache.entrySet().iterator();
+        while (cache.size() > cacheSize && iterator.hasNext()) {
+            File file = iterator.next().getValue();
+            iterator.remove();
+            if (!file.delete()) debug.println("Can`t delete cached level " + file);
+        }
+    }
+
+    public int getReady() {
+        return ready.size();
+    }
+
+    public void stop() {
+        refiller.shutdownNow();
+    }
+
+}
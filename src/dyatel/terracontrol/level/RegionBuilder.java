@@ -0,0 +1,130 @@
+package dyatel.terracontrol.level;
+
+import java.util.Arrays;
+
+public class RegionBuilder {
+
+    // Builds masters from colors of every cell with two-pass connected-component labeling
+
+    private RegionBuilder() {
+
+    }
+
+    public static void build(BasicLevel level, int[] colors) {
+        int[] labels = new int[colors.length]; // Region of every cell
+        int[] regionColors = label(level.getWidth(), level.getHeight(), colors, labels);
+        build(level, labels, regionColors);
+    }
+
+    public static int[] label(int width, int height, int[] colors, int[] labels) {
+        // Fills region of every cell, regions are numbered in order of first cell, returns color of every region
+
+        // First pass: every cell gets label of same colored cell on the left or above, touching labels are joined
+        int[] parent = new int[16]; // Disjoint-set of labels
+        int count = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int i = x + y * width;
+                int left = x > 0 && colors[i - 1] == colors[i] ? labels[i - 1] : -1;
+                int up = y > 0 && colors[i - width] == colors[i] ? labels[i - width] : -1;
+
+                if (left == -1 && up == -1) {
+                    // New label
+                    if (count == parent.length) parent = Arrays.copyOf(parent, count * 2);
+                    parent[count] = count;
+                    labels[i] = count++;
+                } else if (up == -1) {
+                    labels[i] = left;
+                } else {
+                    labels[i] = up;
+                    if (left != -1) join(parent, left, up);
+                }
+            }
+        }
+
+        // Numbering components in order of first cell
+        int[] components = new int[count]; // Region of every root label
+        Arrays.fill(components, -1);
+        int[] regionColors = new int[count];
+        int created = 0;
+        for (int i = 0; i < labels.length; i++) {
+            int root = find(parent, labels[i]);
+            if (components[root] == -1) {
+                components[root] = created;
+                regionColors[created++] = colors[i];
+            }
+            labels[i] = components[root];
+        }
+
+        return Arrays.copyOf(regionColors, created);
+    }
+
+    public static void build(BasicLevel level, int[] regions, int[] regionColors) {
+        // Builds masters from region of every cell, used directly when regions are already known
+        int width = level.getWidth();
+        int height = level.getHeight();
+
+        // Second pass: creating master for every region
+        CellMaster[] masters = new CellMaster[regionColors.length];
+        for (int r = 0; r < masters.length; r++) {
+            masters[r] = new CellMaster(regionColors[r], level);
+            masters[r].setID(r); // Clients find masters by this ID
+        }
+        int[] sizes = new int[masters.length];
+        for (int i = 0; i < regions.length; i++) {
+            sizes[regions[i]]++;
+            level.grid[i] = masters[regions[i]].getNode();
+        }
+        for (int r = 0; r < masters.length; r++) level.regions.addCells(masters[r].getNode(), sizes[r]);
+
+        // Third pass: finding borders and linking neighbors
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int i = x + y * width;
+                CellMaster master = masters[regions[i]];
+
+                // Cells on the edge of field are border cells too
+                boolean border = x == 0 || y == 0 || x == width - 1 || y == height - 1;
+                if (x < width - 1 && regions[i + 1] != regions[i]) {
+                    master.link(masters[regions[i + 1]]);
+                    border = true;
+                }
+                if (y < height - 1 && regions[i + width] != regions[i]) {
+                    master.link(masters[regions[i + width]]);
+                    border = true;
+                }
+                if (!border) border = regions[i - 1] != regions[i] || regions[i - width] != regions[i];
+
+                if (border) {
+                    master.addBorderCell(i);
+                    master.extendBounds(x, y, x + 1, y + 1); // Region is bounded by its border
+                }
+            }
+        }
+    }
+
+    private static int find(int[] parent, int label) {
+        int root = label;
+        while (parent[root] != root) root = parent[root];
+
+        // Compressing path
+        while (parent[label] != root) {
+            int next = parent[label];
+            parent[label] = root;
+            label = next;
+        }
+
+        return root;
+    }
+
+    private static void join(int[] parent, int a, int b) {
+        a = find(parent, a);
+        b = find(parent, b);
+        if (a < b) {
+            parent[b] = a;
+        } else if (b < a) {
+            parent[a] = b;
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+package dyatel.terracontrol.level;
+
+import java.util.Arrays;
+
+public class RegionSet {
+
+    // Disjoint-set forest of masters: every master gets a node, merged masters share one root
+
+    private int[] parent; // Parent node, root points to itself
+    private int[] size; // Number of nodes in tree, valid for roots only
+    private int[] cells; // Number of cells in region, valid for roots only
+    private CellMaster[] masters; // Master that represents region, valid for roots only
+
+    private int nodes = 0; // Number of used nodes
+
+    public RegionSet() {
+        this(16);
+    }
+
+    public RegionSet(int capacity) {
+        capacity = Math.max(capacity, 1);
+        parent = new int[capacity];
+        size = new int[capacity];
+        cells = new int[capacity];
+        masters = new CellMaster[capacity];
+    }
+
+    public int add(CellMaster master) {
+        // Growing arrays if needed
+        if (nodes == parent.length) {
+            int capacity = parent.length * 2;
+            parent = Arrays.copyOf(parent, capacity);
+            size = Arrays.copyOf(size, capacity);
+            cells = Arrays.copyOf(cells, capacity);
+            masters = Arrays.copyOf(masters, capacity);
+        }
+
+        parent[nodes] = nodes;
+        size[nodes] = 1;
+        cells[nodes] = 0;
+        masters[nodes] = master;
+        return nodes++;
+    }
+
+    public int find(int node) {
+        // Finding root
+        int root = node;
+        while (parent[root] != root) root = parent[root];
+
+        // Compressing path, so next search will be faster
+        while (parent[node] != root) {
+            int next = parent[node];
+            parent[node] = root;
+            node = next;
+        }
+
+        return root;
+    }
+
+    public int union(int a, int b, CellMaster survivor) {
+        a = find(a);
+        b = find(b);
+        if (a == b) {
+            masters[a] = survivor;
+            return a;
+        }
+
+        // Attaching smaller tree to bigger one
+        if (size[a] < size[b]) {
+            int t = a;
+            a = b;
+            b = t;
+        }
+        parent[b] = a;
+        size[a] += size[b];
+        cells[a] += cells[b];
+
+        // Root keeps the master that survived merge
+        masters[a] = survivor;
+        masters[b] = null;
+
+        return a;
+    }
+
+    public CellMaster getMaster(int node) {
+        return masters[find(node)];
+    }
+
+    public void addCells(int node, int n) {
+        cells[find(node)] += n;
+    }
+
+    public int getCells(int node) {
+        return cells[find(node)];
+    }
+
+    public int getNodes() {
+        return nodes;
+    }
+
+}
@@ -0,0 +1,363 @@
+package dyatel.terracontrol.level;
+
+import dyatel.terracontrol.level.generation.GeneratableLevel;
+import dyatel.terracontrol.level.generation.Generator;
+import dyatel.terracontrol.network.Player;
+import dyatel.terracontrol.util.DataArray;
+import dyatel.terracontrol.util.Debug;
+import dyatel.terracontrol.util.ErrorLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class Replay {
+
+    // Plays turn journal on a level without windows, as fast as level can process turns.
+    // Level is made again from generator seed or level file, then records are applied one by one.
+    // Snapshots of every region owner are taken as records are passed, so seeking back rebuilds level from nearest one.
+
+    private Debug debug; // Output
+
+    private long startTime; // When game started
+    private long seed; // Randomizer seed of level
+    private String generatorType; // Generator of level, empty if it was loaded
+    private String levelFile; // File level was loaded from, empty if it was generated
+    private int width, height; // Level size
+    private int[] colors; // Level colors
+    private int playerCount; // Players in game
+    private boolean endAt50; // Game ends when someone captures a half
+
+    // Records
+    private int count; // Number of records
+    private byte[] types; // Record types
+    private byte[] recordPlayers; // Player of every record
+    private int[] turns; // Turn number of every record
+    private int[] values; // Color ID or master ID of every record
+    private long[] times; // Milliseconds since start of every record
+
+    private int[] initialRegions; // Region of every cell before first record
+    private int[] initialColors; // Color ID of every initial region
+    private int[] firstCells; // Some cell of every initial region
+
+    private int snapshotInterval; // Records between snapshots
+    private ArrayList<Snapshot> snapshots = new ArrayList<Snapshot>(); // Snapshots in order of position
+
+    private ReplayLevel level; // Level at current position
+    private int position; // Records applied to level
+
+    public Replay(File file, int snapshotInterval, Debug debug) throws IOException {
+        this.snapshotInterval = snapshotInterval;
+        this.debug = debug;
+
+        read(file);
+
+        // Making level as it was before first record
+        level = new ReplayLevel();
+        if (generatorType.equals("")) {
+            LevelFile loaded = LevelFile.load(new File(levelFile));
+            if (loaded.getWidth() != width || loaded.getHeight() != height) throw new IOException("Level file was changed after game");
+            level.createField();
+            loaded.build(level);
+        } else {
+            level.createField();
+            Generator.parseGenerator(generatorType, level).generateAll();
+        }
+        level.processUpdates();
+
+        // Masters aren`t merged yet, so their indexes are region numbers
+        initialRegions = new int[width * height];
+        initialColors = new int[level.getMasters().size()];
+        firstCells = new int[initialColors.length];
+        for (int i = initialRegions.length - 1; i >= 0; i--) {
+            CellMaster master = level.getMaster(i % width, i / width);
+            initialRegions[i] = master.getIndex();
+            initialColors[master.getIndex()] = master.getColorID();
+            firstCells[master.getIndex()] = i;
+        }
+
+        snapshots.add(new Snapshot());
+    }
+
+    private void read(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("Journal is too big");
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != TurnJournal.MAGIC) throw new IOException("Not a turn journal");
+            int version = buffer.getInt();
+            if (version != TurnJournal.VERSION) throw new IOException("Unsupported journal version " + version);
+
+            startTime = buffer.getLong();
+            seed = buffer.getLong();
+            generatorType = getString(buffer);
+            levelFile = getString(buffer);
+            width = buffer.getInt();
+            height = buffer.getInt();
+            if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE) throw new IOException("Wrong level size");
+            int colorCount = buffer.getInt();
+            if (colorCount <= 0 || colorCount > buffer.remaining() / 4) throw new IOException("Wrong number of colors");
+            colors = new int[colorCount];
+            for (int i = 0; i < colors.length; i++) colors[i] = buffer.getInt();
+            playerCount = buffer.getInt();
+            if (playerCount <= 0 || playerCount > TurnJournal.MAX_PLAYERS) throw new IOException("Wrong number of players");
+            endAt50 = buffer.get() != 0;
+            if (generatorType.equals("") == levelFile.equals("")) throw new IOException("Journal must have generator or level file");
+
+            // Last record may be cut if game crashed, it`s ignored
+            count = buffer.remaining() / TurnJournal.RECORD_SIZE;
+            types = new byte[count];
+            recordPlayers = new byte[count];
+            turns = new int[count];
+            values = new int[count];
+            times = new long[count];
+            for (int i = 0; i < count; i++) {
+                types[i] = buffer.get();
+                recordPlayers[i] = buffer.get();
+                turns[i] = buffer.getInt();
+                values[i] = buffer.getInt();
+                times[i] = buffer.getLong();
+
+                if (types[i] != TurnJournal.PLACE && types[i] != TurnJournal.TURN) throw new IOException("Wrong type of record " + i);
+                if (recordPlayers[i] < 0 || recordPlayers[i] >= playerCount) throw new IOException("Wrong player of record " + i);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Journal ends too early");
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xffff];
+        buffer.get(bytes);
+        return new String(bytes, TurnJournal.UTF8);
+    }
+
+    public boolean step() throws IOException {
+        // Applies next record, returns false if there are no more records
+        if (position == count) return false;
+
+        int player = recordPlayers[position];
+        if (types[position] == TurnJournal.PLACE) {
+            if (values[position] < 0 || values[position] >= firstCells.length) throw new IOException("Wrong master of record " + position);
+            int cell = firstCells[values[position]];
+            CellMaster master = level.getMaster(cell % width, cell / width);
+            if (level.players[player] != null || master.getOwner() != null) throw new IOException("Wrong placing in record " + position);
+            level.players[player] = new Player(master, player, null);
+            level.starts[player] = cell;
+        } else {
+            Player p = level.players[player];
+            if (p == null) throw new IOException("Player " + player + " isn`t placed in record " + position);
+            if (values[position] == -1) {
+                p.incrementTurns();
+            } else {
+                if (values[position] < 0 || values[position] >= colors.length) throw new IOException("Wrong color of record " + position);
+                p.addTurn(values[position]);
+            }
+            level.processUpdates();
+        }
+        position++;
+
+        if (position % snapshotInterval == 0 && snapshots.get(snapshots.size() - 1).position < position) snapshots.add(new Snapshot());
+        return true;
+    }
+
+    public void playAll() throws IOException {
+        while (step()) ;
+    }
+
+    public void seek(int target) throws IOException {
+        // Moves to position where first target records are applied
+        if (target < 0 || target > count) throw new IllegalArgumentException("No position " + target + " in journal");
+
+        // Going forward from current position is cheaper than rebuilding if there is no closer snapshot
+        Snapshot nearest = snapshots.get(0);
+        for (Snapshot snapshot : snapshots) {
+            if (snapshot.position <= target) nearest = snapshot;
+        }
+        if (target < position || nearest.position > position) nearest.restore();
+
+        while (position < target) step();
+    }
+
+    public ReplayLevel getLevel() {
+        return level;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public int getRecordCount() {
+        return count;
+    }
+
+    public int getTurnCount() {
+        int result = 0;
+        for (int i = 0; i < count; i++) {
+            if (types[i] == TurnJournal.TURN) result++;
+        }
+        return result;
+    }
+
+    public long getTime(int record) {
+        return times[record];
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public String getGeneratorType() {
+        return generatorType;
+    }
+
+    public String getLevelFile() {
+        return levelFile;
+    }
+
+    private class Snapshot {
+
+        // Level at some position: owner of every initial region and state of every player
+
+        private int position; // Records applied
+        private byte[] owners; // Owner of every initial region, -1 if it`s free
+        private int[] playerColors; // Color ID of every player
+        private int[] playerTurns; // Turns of every player
+        private int[] lastTurns; // Last turn of every player
+        private int[] starts; // Start cell of every player, -1 if player isn`t placed
+
+        private Snapshot() {
+            position = Replay.this.position;
+
+            owners = new byte[firstCells.length];
+            for (int r = 0; r < owners.length; r++) {
+                CellMaster master = level.getMaster(firstCells[r] % width, firstCells[r] / width);
+                owners[r] = (byte) (master.getOwner() == null ? -1 : master.getOwner().getID());
+            }
+
+            playerColors = new int[playerCount];
+            playerTurns = new int[playerCount];
+            lastTurns = new int[playerCount];
+            starts = level.starts.clone();
+            for (int p = 0; p < playerCount; p++) {
+                Player player = level.players[p];
+                if (player == null) continue;
+                playerColors[p] = player.getMaster().getColorID();
+                playerTurns[p] = player.getTurns();
+                lastTurns[p] = player.getLastTurn();
+            }
+        }
+
+        private void restore() {
+            // Cells with same key form one region: free regions keep their color, owned ones take color of owner
+            int[] keys = new int[initialRegions.length];
+            for (int i = 0; i < keys.length; i++) {
+                int r = initialRegions[i];
+                keys[i] = owners[r] == -1 ? initialColors[r] : colors.length * (owners[r] + 1) + playerColors[owners[r]];
+            }
+
+            level = new ReplayLevel();
+            level.createField();
+            int[] labels = new int[keys.length];
+            int[] regionColors = RegionBuilder.label(width, height, keys, labels);
+            for (int r = 0; r < regionColors.length; r++) regionColors[r] %= colors.length;
+            RegionBuilder.build(level, labels, regionColors);
+
+            for (int p = 0; p < playerCount; p++) {
+                if (starts[p] == -1) continue;
+                level.players[p] = new Player(level.getMaster(starts[p] % width, starts[p] / width), p, null);
+                level.players[p].setTurns(playerTurns[p], lastTurns[p]);
+                level.starts[p] = starts[p];
+            }
+            level.processUpdates();
+
+            Replay.this.position = position;
+        }
+
+    }
+
+    public class ReplayLevel extends BasicLevel implements GeneratableLevel {
+
+        // Level that only applies records, it has no state and never ends the game
+
+        private int[] starts; // Start cell of every player
+
+        private ReplayLevel() {
+            super(Replay.this.debug);
+
+            seed = Replay.this.seed;
+            width = Replay.this.width;
+            height = Replay.this.height;
+            colors = Replay.this.colors;
+            endAt50 = Replay.this.endAt50;
+            players = new Player[playerCount];
+            starts = new int[playerCount];
+            Arrays.fill(starts, -1);
+            initialized = true;
+        }
+
+        protected void preInit(DataArray data) {
+
+        }
+
+        protected void sideUpdate() {
+
+        }
+
+        public void onLevelGenerated() {
+
+        }
+
+        public int getCapturedCells() {
+            return capturedCells;
+        }
+
+        public boolean isLevelCaptured() {
+            return levelCaptured;
+        }
+
+    }
+
+    public static void start(String[] args) {
+        // Prints cells of every player after given number of records: --replay file [--records=N]
+        Debug debug = Debug.spDebug;
+        if (args.length < 2) {
+            debug.println("Usage: --replay <journal> [--records=all]");
+            return;
+        }
+
+        try {
+            long start = System.nanoTime();
+            Replay replay = new Replay(new File(args[1]), 256, Debug.noDebug);
+            int target = replay.getRecordCount();
+            if (args.length > 2 && args[2].startsWith("--records=")) target = Math.min(target, Integer.parseInt(args[2].substring(10)));
+            replay.seek(target);
+
+            debug.println("Replayed " + replay.getPosition() + " of " + replay.getRecordCount() + " records in " + (System.nanoTime() - start) / 1000000 + " ms");
+            ReplayLevel level = replay.getLevel();
+            for (int p = 0; p < level.getPlayers(); p++) {
+                Player player = level.getPlayer(p);
+                if (player == null) continue;
+                debug.println("Player " + p + ": " + player.getMaster().getCellCount() + " cells, " + player.getTurns() + " turns");
+            }
+        } catch (Exception e) {
+            debug.println("Can`t replay: " + e.getMessage());
+            ErrorLogger.add(e);
+        } finally {
+            ErrorLogger.close();
+        }
+    }
+
+}
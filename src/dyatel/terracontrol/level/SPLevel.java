@@ -1,48 +1,59 @@
 package dyatel.terracontrol.level;
 
-import dyatel.terracontrol.level.button.Button;
-import dyatel.terracontrol.level.button.ButtonController;
-import dyatel.terracontrol.level.button.TurnButton;
+import dyatel.terracontrol.level.ai.AI;
+import dyatel.terracontrol.level.ai.GameState;
+import dyatel.terracontrol.level.ai.GreedyAI;
+import dyatel.terracontrol.level.ai.RegionGraph;
 import dyatel.terracontrol.level.generation.GeneratableLevel;
 import dyatel.terracontrol.level.generation.Generator;
 import dyatel.terracontrol.network.Player;
-import dyatel.terracontrol.util.Color;
 import dyatel.terracontrol.util.DataArray;
-import dyatel.terracontrol.util.Util;
-import dyatel.terracontrol.window.GameWindow;
-import dyatel.terracontrol.window.Screen;
+import dyatel.terracontrol.util.Debug;
+import dyatel.terracontrol.util.ErrorLogger;
+import dyatel.terracontrol.util.SplitRandom;
 
-import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
-public class SPLevel extends BasicLevel implements GeneratableLevel, TurnableLevel {
+public class SPLevel extends BasicLevel implements GeneratableLevel {
 
     // state: -1 - no state, 0 - generating, 1 - placing players, 2 - playing, 3 - won, 4 - lost, 5 - draw
 
-    private Random random = Util.getRandom(); // Random
-
     private Generator generator; // Level generator
+    private boolean fastGeneration; // Level is generated in one update if true
 
     private int placedPlayers = 0; // How many players are placed
     private int currentPlayer; // Player that is making turn
 
-    private boolean endAt50; // Game will end when someone captures more than a half of field if true
-
-    private ButtonController buttons; // Buttons for making turns
-    private int currentColor; // Chosen color
-    private int currentColorID; // Chosen color array index
+    private AI ai; // AI that controls enemies
+    private ExecutorService aiThread; // AI thinks there, so level doesn`t freeze
+    private Future<Integer> aiTurn; // Turn that AI is choosing now
+    private GameState mirror; // Position that follows every turn, so AI searches over one region graph for whole game
 
-    private int colorFading = 0; // Number to subtract from color for fading
-
-    public SPLevel(DataArray data, GameWindow window) {
-        super(window);
+    public SPLevel(DataArray data, Debug debug) {
+        super(debug);
 
         init(data);
     }
 
     protected void preInit(DataArray data) {
+        players = new Player[data.getInteger("players")];
+        endAt50 = data.getBoolean("endAt50");
+
+        ai = AI.parseAI(data.getString("ai"), data.getInteger("playouts"), seed);
+
+        // Generation isn`t needed if level was saved before
+        if (loadLevel(data.getString("levelFile"))) {
+            state = 1;
+            return;
+        }
+
         width = data.getInteger("levelWidth");
         height = data.getInteger("levelHeight");
-        cells = new Cell[width * height];
+        createField();
 
         // Getting colors from data
         colors = new int[data.getInteger("colors")];
@@ -52,130 +63,141 @@ public class SPLevel extends BasicLevel implements GeneratableLevel, TurnableLev
 
         // Finding generator
         generator = Generator.parseGenerator(data.getString("generatorType"), this);
-
-        players = new Player[data.getInteger("players")];
-        endAt50 = data.getBoolean("endAt50");
-
-        // Adding buttons
-        buttons = new ButtonController();
-        for (int i = 0; i < colors.length; i++) {
-            int buttonSpacing = Button.getSize() + (Button.getHoveringSize() - Button.getSize() + 1) * 2;
-            int offset = (window.getHeight() - window.getFieldHeight()) / 2;
-            new TurnButton(offset + buttonSpacing * i, window.getFieldHeight() + offset, colors[i], buttons, this);
-        }
+        fastGeneration = data.getBoolean("fastGeneration");
 
         state = 0;
     }
 
     protected void sideUpdate() {
-        // Resetting chosen color
-        currentColor = 0;
-        currentColorID = -1;
-        buttons.update(mouseX, mouseY); // Updating buttons
-
-        // Printing current state
-        switch (state) {
-            case -1:
-                window.statusBar[1] = "Waiting...";
-                break;
-            case 0:
-                window.statusBar[1] = "Generated: " + generator.getGeneratedPercent() + "%";
-                break;
-            case 1:
-                window.statusBar[1] = "Placing players: " + placedPlayers + "/" + players.length;
-                break;
-            case 2:
-                window.statusBar[1] = currentPlayer == 0 ? "Your move!" : "Wait...";
-                break;
-            case 3:
-                window.statusBar[1] = "You won!";
-                break;
-            case 4:
-                window.statusBar[1] = "You lost...";
-                break;
-            case 5:
-                window.statusBar[1] = "Draw.";
-                break;
-        }
-
-        if (state > 2) {
-            if (colorFading < 0xff) colorFading += 4;
-            return;
-        }
+        if (state > 2) return;
 
         // Level generation
-        if (state == 0) generator.generate();
+        if (state == 0) {
+            if (fastGeneration)
+                generator.generateAll();
+            else
+                generator.generate();
+        }
 
         if (state == 2) {
+            // Nobody can change result, no need to play till the end
+            if (isOutcomeDecided()) {
+                debug.println("Outcome is decided!");
+                findWinner();
+                return;
+            }
+
             // Checking if player has available turns
-            if (!players[0].haveAvailableTurns()) {
+            if (currentPlayer == 0 && !players[0].haveAvailableTurns()) {
                 players[0].incrementTurns();
                 currentPlayer = nextPlayer();
             }
 
             // AI turn
             if (currentPlayer != 0) {
-                if (players[currentPlayer].haveAvailableTurns()) {
-                    // Choosing best available turn
-                    int max = -1;
-                    int turn = -1;
-                    for (int i = 0; i < colors.length; i++) {
-                        int willAdd = players[currentPlayer].canCapture(i);
-                        if (willAdd > max) {
-                            max = willAdd;
-                            turn = i;
+                if (!players[currentPlayer].haveAvailableTurns()) {
+                    players[currentPlayer].incrementTurns();
+                    currentPlayer = nextPlayer();
+                } else if (aiTurn == null) {
+                    // Searching on snapshot, level isn`t changed until AI makes its turn
+                    if (mirror == null || mirror.getTurn() != currentPlayer) mirror = new GameState(new RegionGraph(this), currentPlayer);
+                    final GameState snapshot = new GameState(mirror);
+                    aiTurn = getAIThread().submit(new Callable<Integer>() {
+                        public Integer call() {
+                            return ai.chooseTurn(snapshot);
                         }
-                    }
-
+                    });
+                } else if (aiTurn.isDone()) {
                     // Making turn
-                    players[currentPlayer].addTurn(turn);
-                }
-                players[currentPlayer].incrementTurns();
-                currentPlayer = nextPlayer();
-            }
+                    players[currentPlayer].addTurn(getAITurn());
+                    aiTurn = null;
 
-            // Calculating number of cells that we can capture
-            int availableCells = players[0].canCapture(currentColorID);
-            window.statusBar[4] = String.valueOf(players[0].getMaster().getCells().size() + (availableCells > 0 ? "(+" + availableCells + ")" : "") + " cells");
-
-            // Checking if level is captured
-            int cCells = 0; // Captured cells
-            for (Player player : players) {
-                int cells = player.getMaster().getCells().size();
-                if ((endAt50 && cells > width * height / 2) || (cCells += cells) == width * height) {
-                    debug.println("Captured level!");
-                    findWinner();
-                    break;
+                    currentPlayer = nextPlayer();
                 }
             }
         }
+    }
 
-        // Managing mouse click
-        if (mouse.isClicked()) {
-            if (state == 1) {
-                // Placing players
-                CellMaster currentMaster = getMaster(mouseLX, mouseLY);
-                if (currentMaster != null && currentMaster.getOwner() == null) {
-                    players[placedPlayers++] = new Player(currentMaster, placedPlayers - 1, window.getConnection());
-                    if (placedPlayers == players.length) {
-                        currentPlayer = random.nextInt(players.length);
-                        state = 2;
-                    }
-                }
-            } else if (state == 2) {
-                // Making turns
-                if (currentPlayer == 0 && currentColorID != -1 && players[0].canCapture(currentColorID) > 0) {
-                    players[0].addTurn(currentColorID);
-                    currentPlayer = nextPlayer();
+    public boolean placePlayer(CellMaster master) {
+        if (state != 1 || master == null || master.getOwner() != null) return false;
+
+        players[placedPlayers++] = new Player(master, placedPlayers - 1, null);
+        onPlayerPlaced(players[placedPlayers - 1]);
+        if (placedPlayers == players.length) {
+            currentPlayer = new SplitRandom(seed).split(1).nextInt(players.length); // First player depends only on level seed
+            state = 2;
+            if (levelCaptured) findWinner(); // Players may already control enough cells
+        }
+        return true;
+    }
+
+    public boolean makeTurn(int colorID) {
+        // Only first player can make turns from outside, others are controlled by level
+        if (state != 2 || currentPlayer != 0 || colorID == -1 || players[0].canCapture(colorID) == 0) return false;
+
+        players[0].addTurn(colorID);
+        currentPlayer = nextPlayer();
+        return true;
+    }
+
+    private ExecutorService getAIThread() {
+        if (aiThread == null) {
+            aiThread = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "AI");
+                    thread.setDaemon(true); // AI must not keep game running after window is closed
+                    return thread;
                 }
-            }
+            });
         }
+        return aiThread;
+    }
+
+    private int getAITurn() {
+        try {
+            int turn = aiTurn.get();
+            String stats = ai.getStats();
+            if (stats != null) debug.println(ai.getName() + " AI: " + stats);
+            if (turn != -1 && players[currentPlayer].canCapture(turn) > 0) return turn;
+        } catch (Exception e) {
+            ErrorLogger.add(e);
+        }
+
+        // Something went wrong, greedy turn is always available
+        return new GreedyAI().chooseTurn(new GameState(new RegionGraph(this), currentPlayer));
+    }
+
+    public void onTurn(Player player, int colorID) {
+        super.onTurn(player, colorID);
+        if (mirror != null) mirror.makeTurn(colorID);
     }
 
     public void onLevelGenerated() {
+        saveLevel();
         state = 1;
     }
 
+    protected void onLevelCaptured() {
+        if (state == 2) findWinner();
+    }
+
+    private boolean isOutcomeDecided() {
+        // Leader keeps the lead even if somebody else gets all free cells
+        int free = width * height - capturedCells;
+        int max = -1;
+        int second = -1;
+        for (Player player : players) {
+            int cells = player.getMaster().getCellCount();
+            if (cells > max) {
+                second = max;
+                max = cells;
+            } else if (cells > second) {
+                second = cells;
+            }
+        }
+        return players.length > 1 && max > second + free;
+    }
+
     private int nextPlayer() {
         return currentPlayer == players.length - 1 ? 0 : currentPlayer + 1;
     }
@@ -186,7 +208,7 @@ public class SPLevel extends BasicLevel implements GeneratableLevel, TurnableLev
         int same = 0; // Needed to determine draw
         Player winner = null;
         for (Player player : players) {
-            int cells = player.getMaster().getCells().size();
+            int cells = player.getMaster().getCellCount();
             if (cells >= max) {
                 if (winner != null) winner.setIsWinner(false);
                 winner = player;
@@ -198,8 +220,12 @@ public class SPLevel extends BasicLevel implements GeneratableLevel, TurnableLev
                 } else if (cells == max) same++;
             }
         }
+        if (aiThread != null) aiThread.shutdownNow(); // Nothing to think about
+        ai.close();
+        closeJournal();
+
         // Determining result
-        int cells = players[0].getMaster().getCells().size(); // Player`s cells
+        int cells = players[0].getMaster().getCellCount(); // Player`s cells
         if (cells < max) {
             state = 4;
         } else if (cells == max) {
@@ -210,50 +236,16 @@ public class SPLevel extends BasicLevel implements GeneratableLevel, TurnableLev
         }
     }
 
-    public boolean isTurnAvailable(int color) {
-        return players[0] != null && players[0].canCapture(getColorID(color)) > 0;
-    }
-
-    public void highlightTurn(int color) {
-        currentColor = color;
-        currentColorID = getColorID(color);
+    public Generator getGenerator() {
+        return generator;
     }
 
-    public void preRender(Screen screen) {
-        if (!initialized) return;
-
-        screen.setOffset(xOff, yOff);
-
-        // Render
-        int yStart = Math.max(yOff / (getCellSize() + 1), 0); // Restricting min y to 0
-        int yEnd = Math.min(yStart + window.getFieldHeight() / ((getCellSize() + 1) - 1) + 1, height); // Restricting max y to height
-        for (int y = yStart; y < yEnd; y++) {
-            int xStart = Math.max(xOff / (getCellSize() + 1), 0); // Restricting min x to 0
-            int xEnd = Math.min(xStart + window.getWidth() / ((getCellSize() + 1) - 1) + 1, width); // Restricting max x to width
-            for (int x = xStart; x < xEnd; x++) {
-                if (cells[x + y * width] == null) continue; // Return if there is nothing to render
-                CellMaster master = getMaster(x, y);
-
-                // Calculating color
-                int color = Color.subtract(colors[master.getColorID()], 0xaa, 0xaa, 0xaa);
-                if (currentColorID == -1 || state != 2) {
-                    if (state > 2 && (master.getOwner() == null || !master.getOwner().isWinner())) {
-                        color = Color.subtract(colors[master.getColorID()], colorFading, colorFading, colorFading);
-                    } else {
-                        color = colors[master.getColorID()];
-                    }
-                } else if (players[0] != null && (master.getOwner() == players[0] || (master.getOwner() == null && players[0].getMaster().isNeighbor(master) && master.getColorID() == currentColorID))) {
-                    color = currentColor;
-                }
-
-                cells[x + y * width].render(screen, color); // Rendering
-            }
-        }
+    public int getPlacedPlayers() {
+        return placedPlayers;
     }
 
-    public void postRender(Screen screen) {
-        if (!initialized) return;
-        buttons.render(screen);
+    public int getCurrentPlayer() {
+        return currentPlayer;
     }
 
 }
@@ -4,33 +4,39 @@ import dyatel.terracontrol.level.generation.GeneratableLevel;
 import dyatel.terracontrol.level.generation.Generator;
 import dyatel.terracontrol.network.Player;
 import dyatel.terracontrol.network.ServerConnection;
-import dyatel.terracontrol.util.Color;
 import dyatel.terracontrol.util.DataArray;
-import dyatel.terracontrol.window.GameWindow;
-import dyatel.terracontrol.window.Screen;
+import dyatel.terracontrol.util.Debug;
 
 public class ServerLevel extends BasicLevel implements GeneratableLevel {
 
     // state: -1 - no state, 0 - generating, 1 - placing players, 2 - waiting for players, 3 - playing, 4 - end
 
+    private ServerConnection connection; // Connection that players use
+
     private Generator generator; // Level generator
+    private boolean fastGeneration; // Level is generated in one update if true
 
     private int placedPlayers = 0; // How many players we have placed already
 
-    private boolean endAt50; // True if game will end when someone captures at least 50% of level
-
-    private int colorFading = 0; // Number to subtract from color for fading
-
-    public ServerLevel(DataArray data, GameWindow window) {
-        super(window);
+    public ServerLevel(DataArray data, Debug debug) {
+        super(debug);
 
         init(data);
     }
 
     protected void preInit(DataArray data) {
+        players = new Player[data.getInteger("players")];
+        endAt50 = data.getBoolean("endAt50");
+
+        // Generation isn`t needed if level was saved before
+        if (loadLevel(data.getString("levelFile"))) {
+            state = 1;
+            return;
+        }
+
         width = data.getInteger("levelWidth");
         height = data.getInteger("levelHeight");
-        cells = new Cell[width * height];
+        createField();
 
         // Getting colors from data
         colors = new int[data.getInteger("colors")];
@@ -40,90 +46,50 @@ public class ServerLevel extends BasicLevel implements GeneratableLevel {
 
         // Finding level generator
         generator = Generator.parseGenerator(data.getString("generatorType"), this);
-
-        players = new Player[data.getInteger("players")];
-        endAt50 = data.getBoolean("endAt50");
+        fastGeneration = data.getBoolean("fastGeneration");
 
         state = 0;
     }
 
     protected void sideUpdate() {
-        // Finding cell under mouse
-        Cell currentCell = getCell(mouseLX, mouseLY);
-        if (currentCell != null) {
-            window.statusBar[1] = String.valueOf(currentCell.getMaster().getID());
-        } else {
-            window.statusBar[1] = "null";
-        }
-
-        // Printing current state
-        switch (state) {
-            case -1:
-                window.statusBar[1] = "Waiting...";
-                break;
-            case 0:
-                window.statusBar[1] = "Generated: " + generator.getGeneratedPercent() + "%";
-                break;
-            case 1:
-                window.statusBar[1] = "Placing players: " + placedPlayers + "/" + players.length;
-                break;
-            case 2:
-                int connected = 0;
-                for (Player player : players) if (player.isConnected()) connected++;
-                if (connected < players.length) {
-                    window.statusBar[1] = "Waiting for players: " + connected + "/" + players.length;
-                } else {
-                    window.statusBar[1] = "Players are receiving level";
-                }
-                break;
-            case 3:
-                window.statusBar[1] = "Current player: " + ((ServerConnection) window.getConnection()).getCurrentPlayer();
-                break;
-            case 4:
-                window.statusBar[1] = "Game end.";
-                break;
+        // Level generation
+        if (state == 0) {
+            if (fastGeneration)
+                generator.generateAll();
+            else
+                generator.generate();
         }
+    }
 
-        // Printing sent/received data in the status bar
-        window.statusBar[5] = window.getConnection().getTraffic();
+    public boolean placePlayer(CellMaster master) {
+        if (state != 1 || master == null || master.getOwner() != null) return false;
 
-        if (state == 4) {
-            if (colorFading < 0xff) colorFading += 4;
-            return;
+        players[placedPlayers++] = new Player(master, placedPlayers - 1, connection);
+        onPlayerPlaced(players[placedPlayers - 1]);
+        if (placedPlayers == players.length) {
+            connection.createPlayers(players);
+            state = 2;
         }
+        return true;
+    }
 
-        // Level generation
-        if (state == 0) generator.generate();
-
-        // Placing players
-        if (mouse.isClicked() && state == 1) {
-            CellMaster currentMaster = getMaster(mouseLX, mouseLY);
-            if (currentMaster != null && currentMaster.getOwner() == null) {
-                players[placedPlayers++] = new Player(currentMaster, placedPlayers - 1, window.getConnection());
-
-                if (placedPlayers == players.length) {
-                    ((ServerConnection) window.getConnection()).createPlayers(players);
-                    state = 2;
-                }
-            }
-        }
+    public void startGame() {
+        state = 3;
+        if (levelCaptured) endGame(); // Players may already control enough cells
+    }
 
-        if (state == 3) {
-            // Checking if level is captured
-            int cCells = 0; // Captured cells
-            for (Player player : players) {
-                int cells = player.getMaster().getCells().size();
-                if ((endAt50 && cells > width * height / 2) || (cCells += cells) == width * height) {
-                    debug.println("Captured level!");
-                    ((ServerConnection) window.getConnection()).gameOver();
-                    state = 4;
-                    return;
-                }
-            }
-        }
+    protected void onLevelCaptured() {
+        if (state == 3) endGame();
+    }
+
+    private void endGame() {
+        connection.gameOver();
+        closeJournal();
+        state = 4;
     }
 
     public void onLevelGenerated() {
+        saveLevel();
         state = 1;
     }
 
@@ -131,31 +97,20 @@ public class ServerLevel extends BasicLevel implements GeneratableLevel {
         return state > 0;
     }
 
-    public void preRender(Screen screen) {
-        if (!initialized) return;
-
-        screen.setOffset(xOff, yOff);
-
-        // Render
-        int yStart = Math.max(yOff / (getCellSize() + 1), 0); // Restricting min y to 0
-        int yEnd = Math.min(yStart + window.getFieldHeight() / ((getCellSize() + 1) - 1) + 1, height); // Restricting max y to height
-        for (int y = yStart; y < yEnd; y++) {
-            int xStart = Math.max(xOff / (getCellSize() + 1), 0); // Restricting min x to 0
-            int xEnd = Math.min(xStart + window.getWidth() / ((getCellSize() + 1) - 1) + 1, width); // Restricting max x to width
-            for (int x = xStart; x < xEnd; x++) {
-                if (cells[x + y * width] == null) continue; // Return if there is nothing to render
-                CellMaster master = getMaster(x, y);
-
-                int color = colors[getMaster(x, y).getColorID()];
-                if (master.getOwner() == null || !master.getOwner().isWinner())
-                    color = Color.subtract(color, colorFading, colorFading, colorFading);
+    public void setConnection(ServerConnection connection) {
+        this.connection = connection;
+    }
 
-                cells[x + y * width].render(screen, color); // Rendering
-            }
-        }
+    public ServerConnection getConnection() {
+        return connection;
     }
 
-    public void postRender(Screen screen) {
+    public Generator getGenerator() {
+        return generator;
+    }
 
+    public int getPlacedPlayers() {
+        return placedPlayers;
     }
+
 }
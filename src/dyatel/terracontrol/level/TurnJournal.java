@@ -0,0 +1,106 @@
+package dyatel.terracontrol.level;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+
+public class TurnJournal {
+
+    // Append-only log of one game, Replay rebuilds the game from it.
+    // Header tells how to get the level: generator and seed, or level file it was loaded from.
+    // Records have fixed size: type, player, turn number, color ID (master ID for placing), milliseconds since start.
+
+    public static final int MAGIC = 0x54434A52; // "TCJR"
+    public static final int VERSION = 1; // Current format version
+
+    public static final byte PLACE = 0; // Player was placed on master
+    public static final byte TURN = 1; // Player made turn or skipped it (color ID is -1)
+
+    public static final int RECORD_SIZE = 18; // Bytes in one record
+    public static final int MAX_PLAYERS = Byte.MAX_VALUE; // Player is written as one byte
+    private static final int BUFFER_SIZE = 64 * 1024; // Bytes of records written at once
+    private static final long FLUSH_INTERVAL = 1000; // Records are written at least this often, in milliseconds
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private FileChannel channel; // Journal file
+    private ByteBuffer buffer; // Header or records waiting to be written
+
+    private long start = System.currentTimeMillis(); // Time of journal creation
+    private long lastFlush = start; // Time of last write
+
+    public TurnJournal(File file, BasicLevel level, String generatorType, String levelFile) throws IOException {
+        // Checking limits of format before file is touched
+        if (level.getPlayers() > MAX_PLAYERS) throw new IOException("Journal can`t keep more than " + MAX_PLAYERS + " players");
+        byte[] generatorBytes = (generatorType == null ? "" : generatorType).getBytes(UTF8);
+        byte[] levelFileBytes = (levelFile == null ? "" : levelFile).getBytes(UTF8);
+        if (generatorBytes.length > 0xffff || levelFileBytes.length > 0xffff) throw new IOException("Level name is too long for journal");
+
+        // Big palette may not fit in usual buffer
+        int headerSize = 4 + 4 + 8 + 8 + 2 + generatorBytes.length + 2 + levelFileBytes.length + 4 + 4 + 4 + 4 * level.getColors().length + 4 + 1;
+        buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE, headerSize));
+
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(start);
+        buffer.putLong(level.getSeed());
+        putString(generatorBytes);
+        putString(levelFileBytes);
+        buffer.putInt(level.getWidth());
+        buffer.putInt(level.getHeight());
+        buffer.putInt(level.getColors().length);
+        for (int color : level.getColors()) buffer.putInt(color);
+        buffer.putInt(level.getPlayers());
+        buffer.put((byte) (level.isEndAt50() ? 1 : 0));
+        flush();
+    }
+
+    private void putString(byte[] bytes) {
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    public synchronized void placed(int player, int master) throws IOException {
+        write(PLACE, player, 0, master);
+    }
+
+    public synchronized void turn(int player, int turn, int colorID) throws IOException {
+        write(TURN, player, turn, colorID);
+    }
+
+    private void write(byte type, int player, int turn, int value) throws IOException {
+        if (channel == null) return; // Already closed
+        if (buffer.remaining() < RECORD_SIZE) flush();
+
+        long time = System.currentTimeMillis();
+        buffer.put(type);
+        buffer.put((byte) player);
+        buffer.putInt(turn);
+        buffer.putInt(value);
+        buffer.putLong(time - start);
+
+        // Game can crash any time, so records don`t wait for full buffer too long
+        if (time - lastFlush >= FLUSH_INTERVAL) flush();
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+        lastFlush = System.currentTimeMillis();
+    }
+
+    public synchronized void close() throws IOException {
+        if (channel == null) return;
+
+        flush();
+        channel.close();
+        channel = null;
+    }
+
+}
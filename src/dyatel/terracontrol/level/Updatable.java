@@ -8,4 +8,8 @@ public interface Updatable {
 
     public boolean isRemoved();
 
+    public boolean isQueued();
+
+    public void setQueued(boolean queued);
+
 }
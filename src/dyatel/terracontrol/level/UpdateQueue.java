@@ -0,0 +1,31 @@
+package dyatel.terracontrol.level;
+
+import java.util.ArrayDeque;
+
+public class UpdateQueue {
+
+    private ArrayDeque<Updatable> queue = new ArrayDeque<Updatable>(); // Objects waiting for update, first in first out
+
+    public void add(Updatable u) {
+        // Queued flag lets us skip objects that are already waiting without searching queue
+        if (u == null || u.isQueued()) return;
+
+        u.setQueued(true);
+        queue.addLast(u);
+    }
+
+    public Updatable poll() {
+        Updatable u = queue.pollFirst();
+        if (u != null) u.setQueued(false); // Object can ask for another update while it is being updated
+        return u;
+    }
+
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+}
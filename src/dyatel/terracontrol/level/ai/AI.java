@@ -0,0 +1,38 @@
+package dyatel.terracontrol.level.ai;
+
+public abstract class AI {
+
+    public static final String[] types = {"Greedy", "Search", "MCTS"}; // All available AIs
+
+    // Returns color for player that makes turn in state, -1 if he has no turns
+    public abstract int chooseTurn(GameState state);
+
+    // Short description of last turn choice, null if there is nothing to tell
+    public String getStats() {
+        return null;
+    }
+
+    public abstract String getName();
+
+    // Stops threads of AI, it can`t choose turns after that
+    public void close() {
+
+    }
+
+    public static AI parseAI(String string, int playouts, long seed) {
+        return parseAI(string, 200, 64, playouts, Runtime.getRuntime().availableProcessors(), seed);
+    }
+
+    public static AI parseAI(String string, int timeBudget, int maxDepth, int playouts, int threads, long seed) {
+        // Finding AI, greedy one is used by default, search without time budget is limited only by depth.
+        // Search and MCTS play endgame perfectly if solver fits in budget of same scale as their own, greedy stays cheap.
+        if ("Search".equals(string)) {
+            return new EndgameSolver(new SearchAI(timeBudget, maxDepth), 20, 100000, timeBudget);
+        } else if ("MCTS".equals(string)) {
+            return new EndgameSolver(new MCTSAI(playouts, threads, seed), 20, playouts * 4L, 0);
+        } else {
+            return new GreedyAI();
+        }
+    }
+
+}
@@ -0,0 +1,181 @@
+package dyatel.terracontrol.level.ai;
+
+import dyatel.terracontrol.util.SplitRandom;
+
+import java.util.ArrayList;
+
+public class EndgameSolver extends AI {
+
+    // Plays small endgames perfectly: every line is searched till the game end, nothing is estimated.
+    // Solver starts when only few free regions are left, before that and when budget runs out turns are chosen by other AI.
+
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    private AI ai; // AI that plays until endgame
+    private int threshold; // Solver starts when free regions are not more than this
+    private long nodeLimit; // Solver gives up after visiting this many positions
+    private int timeBudget; // Solver gives up after this many milliseconds, 0 means no limit
+    private long deadline; // Time when current solve gives up
+
+    private int player; // Player we are solving for
+    private long playerKey; // Mixed into position hash
+    private long nodes; // Positions visited during last solve
+    private boolean aborted; // True if node limit or time budget was reached
+
+    private TranspositionTable table = new TranspositionTable(16); // Solved positions
+
+    private ArrayList<GameState> stack = new ArrayList<GameState>(); // Position for every ply, grows with game length
+    private ArrayList<int[]> moves = new ArrayList<int[]>(); // Turns for every ply
+    private ArrayList<int[]> gains = new ArrayList<int[]>(); // Cells that turns capture
+
+    private String stats; // Description of last turn choice
+
+    public EndgameSolver(AI ai, int threshold, long nodeLimit, int timeBudget) {
+        this.ai = ai;
+        this.threshold = threshold;
+        this.nodeLimit = nodeLimit;
+        this.timeBudget = timeBudget;
+    }
+
+    public int chooseTurn(GameState state) {
+        // Frontier is small in every game start, so only free regions of whole level show the endgame
+        if (state.getFreeRegions() > threshold) {
+            int turn = ai.chooseTurn(state);
+            stats = ai.getStats();
+            return turn;
+        }
+
+        long start = System.nanoTime();
+        deadline = start + timeBudget * 1000000L;
+        int turn = solve(state);
+        long time = (System.nanoTime() - start) / 1000000;
+        if (!aborted) {
+            stats = "endgame solved, " + nodes + " nodes, " + time + " ms";
+            return turn;
+        }
+
+        String failed = "endgame not solved in " + nodes + " nodes";
+        turn = ai.chooseTurn(state);
+        stats = ai.getStats() == null ? failed : ai.getStats() + ", " + failed;
+        return turn;
+    }
+
+    private int solve(GameState state) {
+        player = state.getTurn();
+        playerKey = SplitRandom.mix(player + 1);
+        nodes = 0;
+        aborted = false;
+        table.newSearch();
+
+        if (stack.isEmpty() || stack.get(0).getGraph() != state.getGraph()) {
+            stack.clear();
+            moves.clear();
+            gains.clear();
+        }
+        ensurePly(0, state);
+        stack.get(0).copyFrom(state);
+
+        int count = stack.get(0).sortTurns(moves.get(0), gains.get(0));
+        int best = -1;
+        int alpha = -INFINITY;
+        ensurePly(1, state);
+        for (int i = 0; i < count; i++) {
+            GameState child = stack.get(1);
+            child.copyFrom(state);
+            child.makeTurn(moves.get(0)[i]);
+            int score = search(1, alpha, INFINITY);
+            if (aborted) return -1;
+            if (score > alpha || best == -1) {
+                alpha = score;
+                best = moves.get(0)[i];
+            }
+        }
+        return best;
+    }
+
+    private int search(int ply, int alpha, int beta) {
+        GameState state = stack.get(ply);
+        if (++nodes > nodeLimit || (timeBudget > 0 && (nodes & 1023) == 0 && System.nanoTime() > deadline)) aborted = true;
+        if (aborted) return 0;
+
+        if (state.isOver()) return state.getScore(player);
+
+        ensurePly(ply + 1, state);
+        GameState child = stack.get(ply + 1);
+        int[] turns = moves.get(ply);
+        int count = state.sortTurns(turns, gains.get(ply));
+        if (count == 0) {
+            // Player has nothing to capture and skips turn
+            child.copyFrom(state);
+            child.makeTurn(-1);
+            return search(ply + 1, alpha, beta);
+        }
+
+        // Every stored position is solved exactly, only bounds may be not tight
+        long key = state.getHash() ^ playerKey;
+        long entry = table.probe(key);
+        if (entry != 0) {
+            int score = TranspositionTable.getScore(entry);
+            int flag = TranspositionTable.getFlag(entry);
+            if (flag == TranspositionTable.EXACT) return score;
+            if (flag == TranspositionTable.LOWER && score > alpha) alpha = score;
+            if (flag == TranspositionTable.UPPER && score < beta) beta = score;
+            if (alpha >= beta) return score;
+
+            int hashTurn = TranspositionTable.getTurn(entry);
+            for (int i = 1; i < count; i++) {
+                if (turns[i] == hashTurn) {
+                    turns[i] = turns[0];
+                    turns[0] = hashTurn;
+                    break;
+                }
+            }
+        }
+
+        int alphaStart = alpha;
+        int betaStart = beta;
+        boolean maximizing = state.getTurn() == player;
+        int value = maximizing ? -INFINITY : INFINITY;
+        int best = -1;
+        for (int i = 0; i < count; i++) {
+            child.copyFrom(state);
+            child.makeTurn(turns[i]);
+            int score = search(ply + 1, alpha, beta);
+            if (aborted) return 0;
+
+            if (maximizing ? score > value : score < value) {
+                value = score;
+                best = turns[i];
+            }
+            if (maximizing && value > alpha) alpha = value;
+            if (!maximizing && value < beta) beta = value;
+            if (alpha >= beta) break; // Other turns can`t change result
+        }
+
+        int flag = value <= alphaStart ? TranspositionTable.UPPER : value >= betaStart ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        table.store(key, value, TranspositionTable.DEPTH_EXACT, flag, best);
+        return value;
+    }
+
+    private void ensurePly(int ply, GameState state) {
+        int colors = state.getGraph().getColors();
+        while (stack.size() <= ply) {
+            stack.add(new GameState(state));
+            moves.add(new int[colors]);
+            gains.add(new int[colors]);
+        }
+    }
+
+    public String getStats() {
+        return stats;
+    }
+
+    public void close() {
+        ai.close();
+    }
+
+    public String getName() {
+        return ai.getName();
+    }
+
+}
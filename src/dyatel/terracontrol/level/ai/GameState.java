@@ -0,0 +1,244 @@
+package dyatel.terracontrol.level.ai;
+
+public class GameState {
+
+    // Copyable game position over region graph, everything is stored in primitive arrays.
+    // Free regions are already merged by color in live level, so a turn captures only direct neighbors.
+
+    private RegionGraph graph; // Regions and their neighbors
+
+    private int[] owner; // Owner of every region, -1 if free
+    private int[] playerColor; // Color of every player
+    private int[] cells; // Cells of every player
+    private long[] touches; // Bitset of free regions touching every player, players * words longs
+    private int[] capturable; // Free cells touching every player by color, players * colors ints
+
+    private int freeCells; // Cells that nobody controls
+    private int freeRegions; // Regions that nobody controls
+    private int turn; // Player that makes next turn
+    private int turns; // Turns made from snapshot
+
+    private long hash; // Zobrist hash of owners, player colors and turn, updated with every change
+
+    public GameState(RegionGraph graph, int turn) {
+        this.graph = graph;
+        this.turn = turn;
+
+        owner = graph.owner.clone();
+        playerColor = graph.playerColor.clone();
+        cells = new int[graph.players];
+        touches = new long[graph.players * graph.words];
+        capturable = new int[graph.players * graph.colors];
+
+        // Counting everything that players have now
+        freeCells = graph.totalCells;
+        freeRegions = graph.regions;
+        for (int r = 0; r < graph.regions; r++) {
+            int p = owner[r];
+            if (p == -1) continue;
+
+            cells[p] += graph.size[r];
+            freeCells -= graph.size[r];
+            freeRegions--;
+            touchNeighbors(p, r);
+            hash ^= graph.ownerKeys[r * graph.players + p];
+        }
+        for (int p = 0; p < graph.players; p++) hash ^= graph.colorKeys[p * graph.colors + playerColor[p]];
+        hash ^= graph.turnKeys[turn];
+    }
+
+    public GameState(GameState state) {
+        graph = state.graph;
+        owner = new int[state.owner.length];
+        playerColor = new int[state.playerColor.length];
+        cells = new int[state.cells.length];
+        touches = new long[state.touches.length];
+        capturable = new int[state.capturable.length];
+        copyFrom(state);
+    }
+
+    public void copyFrom(GameState state) {
+        // Reusing our arrays, so search can copy positions without allocating
+        System.arraycopy(state.owner, 0, owner, 0, owner.length);
+        System.arraycopy(state.playerColor, 0, playerColor, 0, playerColor.length);
+        System.arraycopy(state.cells, 0, cells, 0, cells.length);
+        System.arraycopy(state.touches, 0, touches, 0, touches.length);
+        System.arraycopy(state.capturable, 0, capturable, 0, capturable.length);
+        freeCells = state.freeCells;
+        freeRegions = state.freeRegions;
+        turn = state.turn;
+        turns = state.turns;
+        hash = state.hash;
+    }
+
+    private void touchNeighbors(int player, int region) {
+        int base = player * graph.words;
+        for (int i = graph.adjStart[region]; i < graph.adjStart[region + 1]; i++) {
+            int n = graph.adj[i];
+            if (owner[n] != -1) continue;
+
+            long bit = 1L << n;
+            if ((touches[base + (n >>> 6)] & bit) != 0) continue; // Already touching
+            touches[base + (n >>> 6)] |= bit;
+            capturable[player * graph.colors + graph.color[n]] += graph.size[n];
+        }
+    }
+
+    private void capture(int player, int region) {
+        int size = graph.size[region];
+        int word = region >>> 6;
+        long bit = 1L << region;
+
+        // Region is not free anymore, nobody can capture it
+        for (int p = 0; p < graph.players; p++) {
+            if ((touches[p * graph.words + word] & bit) != 0) capturable[p * graph.colors + graph.color[region]] -= size;
+        }
+
+        owner[region] = player;
+        hash ^= graph.ownerKeys[region * graph.players + player];
+        cells[player] += size;
+        freeCells -= size;
+        freeRegions--;
+        touchNeighbors(player, region);
+    }
+
+    public int makeTurn(int color) {
+        // Current player captures every free region of this color around him, -1 means skipping turn
+        int player = turn;
+        int gained = 0;
+        if (color != -1) {
+            hash ^= graph.colorKeys[player * graph.colors + playerColor[player]] ^ graph.colorKeys[player * graph.colors + color];
+            playerColor[player] = color;
+
+            int base = player * graph.words;
+            for (int w = 0; w < graph.words; w++) {
+                long bits = touches[base + w];
+                while (bits != 0) {
+                    int r = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    if (owner[r] == -1 && graph.color[r] == color) {
+                        gained += graph.size[r];
+                        capture(player, r);
+                    }
+                }
+            }
+        }
+
+        hash ^= graph.turnKeys[turn];
+        turn = turn == graph.players - 1 ? 0 : turn + 1;
+        hash ^= graph.turnKeys[turn];
+        turns++;
+        return gained;
+    }
+
+    public int canCapture(int player, int color) {
+        return capturable[player * graph.colors + color];
+    }
+
+    public boolean haveAvailableTurns(int player) {
+        int base = player * graph.colors;
+        for (int c = 0; c < graph.colors; c++) if (capturable[base + c] > 0) return true;
+        return false;
+    }
+
+    public int sortTurns(int[] turns, int[] gains) {
+        // Fills available turns of current player sorted by captured cells, bigger captures go first
+        int count = 0;
+        for (int c = 0; c < graph.colors; c++) {
+            int cells = capturable[turn * graph.colors + c];
+            if (cells == 0) continue;
+
+            int i = count++;
+            while (i > 0 && gains[i - 1] < cells) {
+                turns[i] = turns[i - 1];
+                gains[i] = gains[i - 1];
+                i--;
+            }
+            turns[i] = c;
+            gains[i] = cells;
+        }
+        return count;
+    }
+
+    public int getFrontier() {
+        // Free regions that touch at least one player, captured regions stay in touch bitsets so they are skipped
+        int frontier = 0;
+        for (int w = 0; w < graph.words; w++) {
+            long bits = 0;
+            for (int p = 0; p < graph.players; p++) bits |= touches[p * graph.words + w];
+            while (bits != 0) {
+                int r = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (owner[r] == -1) frontier++;
+            }
+        }
+        return frontier;
+    }
+
+    public int getDecidedWinner() {
+        // Player that wins however the game goes on: even all free cells won`t help anyone to catch up, -1 if nobody
+        int leader = 0;
+        for (int p = 1; p < graph.players; p++) if (cells[p] > cells[leader]) leader = p;
+        for (int p = 0; p < graph.players; p++) {
+            if (p != leader && cells[p] + freeCells >= cells[leader]) return -1;
+        }
+        return leader;
+    }
+
+    public boolean isOver() {
+        // Same end conditions as level has
+        for (int p = 0; p < graph.players; p++) {
+            if (graph.endAt50 && cells[p] > graph.totalCells / 2) return true;
+        }
+        for (int p = 0; p < graph.players; p++) {
+            if (haveAvailableTurns(p)) return false;
+        }
+        return true;
+    }
+
+    public int getScore(int player) {
+        // Our cells minus cells of strongest enemy
+        int max = 0;
+        for (int p = 0; p < graph.players; p++) {
+            if (p != player && cells[p] > max) max = cells[p];
+        }
+        return cells[player] - max;
+    }
+
+    public RegionGraph getGraph() {
+        return graph;
+    }
+
+    public int getOwner(int region) {
+        return owner[region];
+    }
+
+    public int getPlayerColor(int player) {
+        return playerColor[player];
+    }
+
+    public int getCells(int player) {
+        return cells[player];
+    }
+
+    public int getFreeCells() {
+        return freeCells;
+    }
+
+    public int getFreeRegions() {
+        return freeRegions;
+    }
+
+    public int getTurn() {
+        return turn;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    public int getTurns() {
+        return turns;
+    }
+
+}
@@ -0,0 +1,25 @@
+package dyatel.terracontrol.level.ai;
+
+public class GreedyAI extends AI {
+
+    // Takes color that captures most cells right now
+
+    public int chooseTurn(GameState state) {
+        int player = state.getTurn();
+        int max = 0;
+        int turn = -1;
+        for (int i = 0; i < state.getGraph().getColors(); i++) {
+            int willAdd = state.canCapture(player, i);
+            if (willAdd > max) {
+                max = willAdd;
+                turn = i;
+            }
+        }
+        return turn;
+    }
+
+    public String getName() {
+        return "Greedy";
+    }
+
+}
@@ -0,0 +1,260 @@
+package dyatel.terracontrol.level.ai;
+
+import dyatel.terracontrol.util.SplitRandom;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+public class MCTSAI extends AI {
+
+    // Monte Carlo tree search with root parallelism: every worker grows its own tree from same position
+    // with its own randomizer, then visits of root turns are summed. Result doesn`t depend on thread timing.
+
+    private static final double EXPLORATION = 1.4; // UCT exploration constant
+
+    private int playouts; // Playouts per turn
+    private int threads; // Number of workers
+    private ExecutorService pool; // Workers, not needed if there is only one
+
+    private long seed; // Seed of level we play on
+    private int searches = 0; // Number of turns chosen, every turn gets its own random streams
+    private String stats; // Description of last search
+
+    public MCTSAI(int playouts, int threads, long seed) {
+        this.playouts = playouts;
+        this.threads = threads;
+        this.seed = seed;
+        if (threads == 1) return; // Single worker runs in caller`s thread
+
+        pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "MCTS");
+                thread.setDaemon(true); // Workers must not keep game running
+                return thread;
+            }
+        });
+    }
+
+    public int chooseTurn(final GameState state) {
+        if (!state.haveAvailableTurns(state.getTurn())) return -1;
+
+        long start = System.nanoTime();
+        SplitRandom random = new SplitRandom(seed).split(searches++);
+        int colors = state.getGraph().getColors();
+        int[] visits = new int[colors];
+
+        if (pool == null) {
+            visits = new Worker(state, random.split(0)).search(playouts);
+        } else {
+            // Starting workers
+            ArrayList<Future<int[]>> results = new ArrayList<Future<int[]>>(threads);
+            for (int i = 0; i < threads; i++) {
+                final int count = playouts / threads + (i < playouts % threads ? 1 : 0);
+                final SplitRandom workerRandom = random.split(i);
+                results.add(pool.submit(new Callable<int[]>() {
+                    public int[] call() {
+                        return new Worker(state, workerRandom).search(count);
+                    }
+                }));
+            }
+
+            // Summing visits in worker order
+            for (Future<int[]> result : results) {
+                try {
+                    int[] workerVisits = result.get();
+                    for (int c = 0; c < colors; c++) visits[c] += workerVisits[c];
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+
+        // Most visited turn is the most reliable one
+        int best = -1;
+        for (int c = 0; c < colors; c++) {
+            if (state.canCapture(state.getTurn(), c) > 0 && (best == -1 || visits[c] > visits[best])) best = c;
+        }
+
+        long time = System.nanoTime() - start;
+        stats = playouts + " playouts on " + threads + " threads, " + (time > 0 ? playouts * 1000000000L / time : 0) + " playouts/s";
+        return best;
+    }
+
+    public String getStats() {
+        return stats;
+    }
+
+    public void close() {
+        if (pool != null) pool.shutdownNow();
+    }
+
+    public String getName() {
+        return "MCTS";
+    }
+
+    private static class Node {
+
+        private int turn; // Color that led to this node, -1 if player skipped turn
+        private int player; // Player that made this turn, -1 for root
+        private int visits = 0; // Playouts through this node
+        private double wins = 0; // Sum of player`s rewards
+
+        private Node[] children; // Expanded children
+        private int expanded = 0; // Number of expanded children
+        private int[] untried; // Turns that are not expanded yet
+
+        private Node(GameState state, int turn, int player) {
+            this.turn = turn;
+            this.player = player;
+
+            // Finding turns that can be made from here
+            if (state.isOver()) {
+                untried = new int[0];
+            } else {
+                int colors = state.getGraph().getColors();
+                int count = 0;
+                for (int c = 0; c < colors; c++) if (state.canCapture(state.getTurn(), c) > 0) count++;
+                if (count == 0) {
+                    untried = new int[]{-1}; // Skipping is the only turn
+                } else {
+                    untried = new int[count];
+                    for (int c = 0, i = 0; c < colors; c++) if (state.canCapture(state.getTurn(), c) > 0) untried[i++] = c;
+                }
+            }
+            children = new Node[untried.length];
+        }
+
+        private Node select() {
+            // UCT: good average reward or few visits
+            double logVisits = Math.log(visits);
+            Node best = null;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < expanded; i++) {
+                Node child = children[i];
+                double value = child.wins / child.visits + EXPLORATION * Math.sqrt(logVisits / child.visits);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+    }
+
+    private static class Worker {
+
+        private GameState root; // Position we are searching from
+        private GameState board; // Playout board, reused by every playout
+        private SplitRandom random; // Our randomizer
+
+        private double[] rewards; // Reward of every player after playout
+        private Node[] path = new Node[64]; // Nodes visited by current playout
+
+        private Worker(GameState root, SplitRandom random) {
+            this.root = root;
+            this.random = random;
+
+            board = new GameState(root);
+            rewards = new double[root.getGraph().getPlayers()];
+        }
+
+        private int[] search(int count) {
+            Node rootNode = new Node(root, -1, -1);
+            for (int i = 0; i < count; i++) {
+                board.copyFrom(root);
+                Node node = rootNode;
+                int depth = 0;
+                path[depth++] = node;
+
+                // Selecting expanded nodes
+                while (node.untried.length == node.expanded && node.expanded > 0) {
+                    node = node.select();
+                    board.makeTurn(node.turn);
+                    depth = push(depth, node);
+                }
+
+                // Expanding one random turn
+                if (node.expanded < node.untried.length) {
+                    int j = node.expanded + random.nextInt(node.untried.length - node.expanded);
+                    int turn = node.untried[j];
+                    node.untried[j] = node.untried[node.expanded];
+                    node.untried[node.expanded] = turn;
+
+                    int player = board.getTurn();
+                    board.makeTurn(turn);
+                    Node child = new Node(board, turn, player);
+                    node.children[node.expanded++] = child;
+                    node = child;
+                    depth = push(depth, node);
+                }
+
+                playout();
+
+                // Giving reward to every node on path
+                for (int j = 0; j < depth; j++) {
+                    path[j].visits++;
+                    if (path[j].player != -1) path[j].wins += rewards[path[j].player];
+                }
+            }
+
+            // Visits of root turns by color
+            int[] visits = new int[root.getGraph().getColors()];
+            for (int i = 0; i < rootNode.expanded; i++) {
+                Node child = rootNode.children[i];
+                if (child.turn != -1) visits[child.turn] = child.visits;
+            }
+            return visits;
+        }
+
+        private int push(int depth, Node node) {
+            if (depth == path.length) path = Arrays.copyOf(path, depth * 2);
+            path[depth] = node;
+            return depth + 1;
+        }
+
+        private void playout() {
+            // Random turns till the end, nothing is allocated here
+            int colors = board.getGraph().getColors();
+            while (!board.isOver()) {
+                int player = board.getTurn();
+                int available = 0;
+                for (int c = 0; c < colors; c++) if (board.canCapture(player, c) > 0) available++;
+
+                int turn = -1;
+                if (available > 0) {
+                    int k = random.nextInt(available);
+                    for (int c = 0; c < colors; c++) {
+                        if (board.canCapture(player, c) > 0 && k-- == 0) {
+                            turn = c;
+                            break;
+                        }
+                    }
+                }
+                board.makeTurn(turn);
+            }
+
+            // Winners share reward
+            int players = rewards.length;
+            int max = 0;
+            int winners = 0;
+            for (int p = 0; p < players; p++) {
+                int cells = board.getCells(p);
+                if (cells > max) {
+                    max = cells;
+                    winners = 1;
+                } else if (cells == max) {
+                    winners++;
+                }
+            }
+            for (int p = 0; p < players; p++) rewards[p] = board.getCells(p) == max ? 1.0 / winners : 0;
+        }
+
+    }
+
+}
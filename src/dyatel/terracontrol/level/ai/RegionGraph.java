@@ -0,0 +1,111 @@
+package dyatel.terracontrol.level.ai;
+
+import dyatel.terracontrol.level.BasicLevel;
+import dyatel.terracontrol.level.CellMaster;
+import dyatel.terracontrol.network.Player;
+import dyatel.terracontrol.util.SplitRandom;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+public class RegionGraph {
+
+    // Snapshot of level masters that AI can search over without touching live level, never changes after creation
+
+    final int regions; // Number of regions
+    final int colors; // Number of colors
+    final int players; // Number of players
+    final int words; // Longs in bitset of regions
+
+    final int[] size; // Cells in every region
+    final int[] color; // Color ID of every region
+    final int[] adjStart; // Neighbors of region r are adj[adjStart[r]] ... adj[adjStart[r + 1] - 1]
+    final int[] adj; // Neighbor lists of all regions
+
+    final int[] owner; // Owner of every region at the moment of snapshot, -1 if free
+    final int[] playerColor; // Color of every player at the moment of snapshot
+
+    // Zobrist keys, position hash is xor of keys of everything in it
+    final long[] ownerKeys; // Key of region owned by player, regions * players
+    final long[] colorKeys; // Key of player color, players * colors
+    final long[] turnKeys; // Key of player that makes next turn
+
+    final int totalCells; // Cells on level
+    final boolean endAt50; // Game ends when someone captures more than a half of field
+
+    public RegionGraph(BasicLevel level) {
+        // Numbering masters in list order, so snapshot of same level is always the same
+        ArrayList<CellMaster> masters = level.getMasters();
+        IdentityHashMap<CellMaster, Integer> ids = new IdentityHashMap<CellMaster, Integer>();
+        ArrayList<CellMaster> live = new ArrayList<CellMaster>(masters.size());
+        for (CellMaster master : masters) {
+            if (master.isRemoved()) continue;
+            ids.put(master, live.size());
+            live.add(master);
+        }
+
+        regions = live.size();
+        colors = level.getColors().length;
+        players = level.getPlayers();
+        words = (regions + 63) >>> 6;
+        totalCells = level.getWidth() * level.getHeight();
+        endAt50 = level.isEndAt50();
+
+        size = new int[regions];
+        color = new int[regions];
+        owner = new int[regions];
+        adjStart = new int[regions + 1];
+        int links = 0;
+        for (int r = 0; r < regions; r++) {
+            CellMaster master = live.get(r);
+            size[r] = master.getCellCount();
+            color[r] = master.getColorID();
+            owner[r] = -1;
+            adjStart[r] = links;
+            links += master.getNeighbors().size();
+        }
+        adjStart[regions] = links;
+
+        adj = new int[links];
+        int i = 0;
+        for (int r = 0; r < regions; r++) {
+            for (CellMaster neighbor : live.get(r).getNeighbors()) {
+                Integer id = ids.get(neighbor);
+                adj[i++] = id == null ? r : id; // Removed neighbor can`t be here, but pointing to ourselves is harmless
+            }
+        }
+
+        playerColor = new int[players];
+        for (int p = 0; p < players; p++) {
+            Player player = level.getPlayer(p);
+            int r = ids.get(player.getMaster());
+            owner[r] = p;
+            playerColor[p] = color[r];
+        }
+
+        // Keys depend on graph itself, so positions of different snapshots don`t share keys, but same level gets same keys
+        long seed = regions;
+        for (int r = 0; r < regions; r++) seed = SplitRandom.mix(seed * 31 + (size[r] << 8 | color[r]));
+        for (int n : adj) seed = SplitRandom.mix(seed * 31 + n);
+        SplitRandom random = new SplitRandom(seed);
+        ownerKeys = new long[regions * players];
+        for (int k = 0; k < ownerKeys.length; k++) ownerKeys[k] = random.nextLong();
+        colorKeys = new long[players * colors];
+        for (int k = 0; k < colorKeys.length; k++) colorKeys[k] = random.nextLong();
+        turnKeys = new long[players];
+        for (int k = 0; k < turnKeys.length; k++) turnKeys[k] = random.nextLong();
+    }
+
+    public int getRegions() {
+        return regions;
+    }
+
+    public int getColors() {
+        return colors;
+    }
+
+    public int getPlayers() {
+        return players;
+    }
+
+}
@@ -0,0 +1,234 @@
+package dyatel.terracontrol.level.ai;
+
+import dyatel.terracontrol.util.SplitRandom;
+
+import java.util.Arrays;
+
+public class SearchAI extends AI {
+
+    // Paranoid alpha-beta search: we maximize our score, every enemy minimizes it.
+    // Depth grows while time is left, result of last finished depth is used.
+    // Positions reached by different turn orders are searched once thanks to transposition table.
+
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    private long timeBudget; // Nanoseconds per turn, 0 if only depth is limited
+    private int maxDepth; // Max depth in turns
+
+    private int player; // Player we are searching for
+    private long deadline; // System time when search must stop
+    private boolean aborted; // True if time is over
+    private long nodes; // Positions visited during last search
+    private int leaves; // Positions that were cut by depth limit, not by game end
+    private int lastBest; // Best turn of previous depth, searched first
+    private long playerKey; // Mixed into position hash, scores of different players must not be shared
+
+    private TranspositionTable table; // Searched positions, only this search uses them
+
+    private GameState[] stack = new GameState[0]; // Position for every depth, reused between searches
+    private int[][] moves = new int[0][]; // Turns for every depth
+    private int[][] gains = new int[0][]; // Cells that turns capture, used to order them
+
+    private String stats; // Description of last search
+
+    public SearchAI(int timeBudget, int maxDepth) {
+        this(timeBudget, maxDepth, new TranspositionTable(18));
+    }
+
+    public SearchAI(int timeBudget, int maxDepth, TranspositionTable table) {
+        this.timeBudget = timeBudget * 1000000L;
+        this.maxDepth = maxDepth;
+        this.table = table;
+    }
+
+    public int chooseTurn(GameState state) {
+        long start = System.nanoTime();
+        player = state.getTurn();
+        deadline = start + timeBudget;
+        aborted = false;
+        nodes = 0;
+        playerKey = SplitRandom.mix(player + 1);
+        table.newSearch();
+        long probes = table.getProbes();
+        long hits = table.getHits();
+
+        int colors = state.getGraph().getColors();
+        ensureDepth(state, 1, colors);
+        stack[0].copyFrom(state);
+
+        int best = -1;
+        int depth = 0;
+        lastBest = -1;
+        boolean exact = false;
+        while (depth < maxDepth && !exact) {
+            depth++;
+            leaves = 0;
+            ensureDepth(state, depth + 1, colors);
+            int turn = searchRoot(depth);
+            if (aborted) {
+                depth--;
+                break;
+            }
+            best = turn;
+            lastBest = turn;
+            exact = leaves == 0; // Every line was played till the end, deeper search will not change anything
+        }
+        if (best == -1) best = new GreedyAI().chooseTurn(state); // Not even first depth was finished
+
+        long time = System.nanoTime() - start;
+        probes = table.getProbes() - probes;
+        hits = table.getHits() - hits;
+        stats = "depth " + depth + (exact ? " (exact)" : "") + ", " + nodes + " nodes, " + (time > 0 ? nodes * 1000000000L / time : 0) + " nodes/s, " +
+                "table hits " + (probes > 0 ? hits * 100 / probes : 0) + "%";
+        return best;
+    }
+
+    private int searchRoot(int depth) {
+        GameState state = stack[0];
+        int count = generateTurns(state, 0);
+        if (count == 0) return -1;
+
+        // Best turn of previous depth is likely the best again, it gives tighter bounds for others
+        moveFirst(0, count, lastBest);
+
+        int best = -1;
+        int alpha = -INFINITY;
+        for (int i = 0; i < count; i++) {
+            GameState child = stack[1];
+            child.copyFrom(state);
+            child.makeTurn(moves[0][i]);
+            int score = search(1, depth - 1, alpha, INFINITY);
+            if (aborted) return -1;
+            if (score > alpha || best == -1) {
+                alpha = score;
+                best = moves[0][i];
+            }
+        }
+        return best;
+    }
+
+    private int search(int ply, int depth, int alpha, int beta) {
+        GameState state = stack[ply];
+        nodes++;
+        if ((nodes & 1023) == 0 && timeBudget > 0 && System.nanoTime() > deadline) aborted = true;
+        if (aborted) return 0;
+
+        if (state.isOver()) return state.getScore(player);
+        if (depth == 0) {
+            leaves++;
+            return state.getScore(player);
+        }
+
+        int count = generateTurns(state, ply);
+        boolean maximizing = state.getTurn() == player;
+        GameState child = stack[ply + 1];
+        if (count == 0) {
+            // Player has nothing to capture and skips turn
+            child.copyFrom(state);
+            child.makeTurn(-1);
+            return search(ply + 1, depth, alpha, beta);
+        }
+
+        // Position may be already searched through other turn order or on previous depth
+        long key = state.getHash() ^ playerKey;
+        long entry = table.probe(key);
+        if (entry != 0) {
+            int entryDepth = TranspositionTable.getDepth(entry);
+            if (entryDepth >= depth) {
+                int score = TranspositionTable.getScore(entry);
+                int flag = TranspositionTable.getFlag(entry);
+                if (flag == TranspositionTable.EXACT) {
+                    alpha = beta = score;
+                } else if (flag == TranspositionTable.LOWER) {
+                    if (score > alpha) alpha = score;
+                } else {
+                    if (score < beta) beta = score;
+                }
+                if (alpha >= beta) {
+                    if (entryDepth != TranspositionTable.DEPTH_EXACT) leaves++; // Result still depends on depth limit
+                    return score;
+                }
+            }
+            moveFirst(ply, count, TranspositionTable.getTurn(entry));
+        }
+
+        int alphaStart = alpha;
+        int betaStart = beta;
+        int leavesStart = leaves;
+        int value = maximizing ? -INFINITY : INFINITY;
+        int best = -1;
+        for (int i = 0; i < count; i++) {
+            child.copyFrom(state);
+            child.makeTurn(moves[ply][i]);
+            int score = search(ply + 1, depth - 1, alpha, beta);
+            if (aborted) return 0;
+
+            if (maximizing) {
+                if (score > value) {
+                    value = score;
+                    best = moves[ply][i];
+                }
+                if (value > alpha) alpha = value;
+            } else {
+                if (score < value) {
+                    value = score;
+                    best = moves[ply][i];
+                }
+                if (value < beta) beta = value;
+            }
+            if (alpha >= beta) break; // Other turns can`t change result
+        }
+
+        // Subtree without depth cuts is valid for any depth
+        int flag = value <= alphaStart ? TranspositionTable.UPPER : value >= betaStart ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        table.store(key, value, leaves == leavesStart ? TranspositionTable.DEPTH_EXACT : depth, flag, best);
+        return value;
+    }
+
+    private void moveFirst(int ply, int count, int turn) {
+        for (int i = 1; i < count; i++) {
+            if (moves[ply][i] == turn) {
+                moves[ply][i] = moves[ply][0];
+                moves[ply][0] = turn;
+                break;
+            }
+        }
+    }
+
+    private int generateTurns(GameState state, int ply) {
+        // Bigger captures are searched first
+        return state.sortTurns(moves[ply], gains[ply]);
+    }
+
+    private void ensureDepth(GameState state, int depth, int colors) {
+        // Positions of other level are useless
+        if (stack.length > 0 && (stack[0].getGraph() != state.getGraph() || moves[0].length < colors)) {
+            stack = new GameState[0];
+            moves = new int[0][];
+            gains = new int[0][];
+        }
+
+        // Stack grows only as deep as iterative deepening goes, skipped turns don`t reduce depth, so every player may need one more position
+        int size = depth * state.getGraph().getPlayers() + 1;
+        if (stack.length >= size) return;
+
+        int created = stack.length;
+        stack = Arrays.copyOf(stack, size);
+        moves = Arrays.copyOf(moves, size);
+        gains = Arrays.copyOf(gains, size);
+        for (int i = created; i < size; i++) {
+            stack[i] = new GameState(state);
+            moves[i] = new int[colors];
+            gains[i] = new int[colors];
+        }
+    }
+
+    public String getStats() {
+        return stats;
+    }
+
+    public String getName() {
+        return "Search";
+    }
+
+}
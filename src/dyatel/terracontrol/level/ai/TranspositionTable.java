@@ -0,0 +1,107 @@
+package dyatel.terracontrol.level.ai;
+
+public class TranspositionTable {
+
+    // Fixed-size table of searched positions, every entry is two longs: key and data.
+    // Table belongs to one search thread, MCTS workers don`t share it so their result doesn`t depend on thread timing.
+    // Bucket has two entries: first one keeps deeper searches, second one is always replaced.
+
+    public static final int EXACT = 0; // Score is exact
+    public static final int LOWER = 1; // Score is at least this
+    public static final int UPPER = 2; // Score is at most this
+
+    public static final int DEPTH_EXACT = 255; // Depth of positions that were searched till game end
+
+    private static final long VALID = 1L << 63; // Set in every stored data, so empty entry never matches
+    private static final int FIELD = 0xff; // Depth, turn and age are stored in 8 bits
+
+    private long[] table; // Entries, 4 longs per bucket
+    private int mask; // Buckets - 1
+
+    private int age = 0; // Search generation, entries of old searches are replaced first
+
+    private long probes = 0; // Number of probes
+    private long hits = 0; // Number of probes that found position
+    private long stores = 0; // Number of stored positions
+
+    public TranspositionTable(int bits) {
+        table = new long[4 << bits];
+        mask = (1 << bits) - 1;
+    }
+
+    public long probe(long key) {
+        // Returns data of position, 0 if it isn`t found
+        probes++;
+        int i = ((int) key & mask) << 2;
+        for (int j = i; j < i + 4; j += 2) {
+            if (table[j + 1] != 0 && table[j] == key) {
+                hits++;
+                return table[j + 1];
+            }
+        }
+        return 0;
+    }
+
+    public void store(long key, int score, int depth, int flag, int turn) {
+        // Deeper limited searches are kept as not exact, turn that doesn`t fit isn`t remembered, it`s only a hint
+        if (depth != DEPTH_EXACT) depth = Math.min(depth, DEPTH_EXACT - 1);
+        int hint = turn + 1 <= FIELD ? turn + 1 : 0;
+        long data = VALID | (score & 0xffffffffL) | (long) depth << 32 | (long) flag << 40 | (long) hint << 42 | (long) (age & FIELD) << 50;
+
+        // Depth-preferred entry is replaced by same position, deeper search or anything from old search
+        int i = ((int) key & mask) << 2;
+        long old = table[i + 1];
+        if (old == 0 || table[i] == key || depth >= getDepth(old) || ((old >>> 50) & FIELD) != (age & FIELD)) {
+            table[i] = key;
+            table[i + 1] = data;
+        } else {
+            table[i + 2] = key;
+            table[i + 3] = data;
+        }
+        stores++;
+    }
+
+    public void newSearch() {
+        age++;
+    }
+
+    public void clear() {
+        for (int i = 0; i < table.length; i++) table[i] = 0;
+        probes = 0;
+        hits = 0;
+        stores = 0;
+    }
+
+    public static int getScore(long data) {
+        return (int) data;
+    }
+
+    public static int getDepth(long data) {
+        return (int) (data >>> 32) & FIELD;
+    }
+
+    public static int getFlag(long data) {
+        return (int) (data >>> 40) & 0x3;
+    }
+
+    public static int getTurn(long data) {
+        return (int) ((data >>> 42) & FIELD) - 1;
+    }
+
+    public long getProbes() {
+        return probes;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getStores() {
+        return stores;
+    }
+
+    public double getHitRate() {
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+
+}
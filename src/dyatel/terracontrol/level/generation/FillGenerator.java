@@ -1,8 +1,5 @@
 package dyatel.terracontrol.level.generation;
 
-import dyatel.terracontrol.level.Cell;
-import dyatel.terracontrol.level.CellMaster;
-
 public class FillGenerator extends Generator {
 
     private int y = 0;
@@ -17,7 +14,7 @@ public class FillGenerator extends Generator {
         int height = level.getHeight();
 
         for (int x = 0; x < width; x++) {
-            new Cell(x, y, new CellMaster(level));
+            setCell(x, y, randomColor());
         }
 
         if (y < height - 1) y++;
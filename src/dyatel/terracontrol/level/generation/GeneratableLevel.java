@@ -9,6 +9,10 @@ public interface GeneratableLevel extends Level {
 
     public ArrayList<CellMaster> getMasters();
 
+    public void buildRegions(int[] colors);
+
     public void onLevelGenerated();
 
+    public long getSeed();
+
 }
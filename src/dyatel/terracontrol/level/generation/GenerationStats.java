@@ -0,0 +1,55 @@
+package dyatel.terracontrol.level.generation;
+
+public class GenerationStats {
+
+    private final String generator; // Generator name
+    private final int width, height; // Level size in cells
+    private final int masters; // Masters left after merging
+    private final int steps; // Generation steps made
+    private final long generationTime; // Nanoseconds spent placing cells
+    private final long totalTime; // Nanoseconds spent including merging and finishing
+
+    public GenerationStats(String generator, int width, int height, int masters, int steps, long generationTime, long totalTime) {
+        this.generator = generator;
+        this.width = width;
+        this.height = height;
+        this.masters = masters;
+        this.steps = steps;
+        this.generationTime = generationTime;
+        this.totalTime = totalTime;
+    }
+
+    public String getGenerator() {
+        return generator;
+    }
+
+    public int getCells() {
+        return width * height;
+    }
+
+    public int getMasters() {
+        return masters;
+    }
+
+    public int getSteps() {
+        return steps;
+    }
+
+    public long getGenerationTime() {
+        return generationTime / 1000000; // In milliseconds
+    }
+
+    public long getTotalTime() {
+        return totalTime / 1000000; // In milliseconds
+    }
+
+    public double getCellsPerSecond() {
+        return totalTime == 0 ? 0 : getCells() * 1000000000d / totalTime;
+    }
+
+    public String toString() {
+        return generator + " " + width + "x" + height + ": " + masters + " masters, " + steps + " steps, " +
+                getGenerationTime() + " ms generating, " + getTotalTime() + " ms total, " + (long) getCellsPerSecond() + " cells/s";
+    }
+
+}
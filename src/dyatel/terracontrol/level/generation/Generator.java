@@ -1,26 +1,33 @@
 package dyatel.terracontrol.level.generation;
 
-import dyatel.terracontrol.level.CellMaster;
-import dyatel.terracontrol.util.Util;
-
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Random;
 
 public abstract class Generator {
 
-    protected Random random = Util.getRandom(); // Randomizer
+    protected Random random; // Randomizer, made from level seed
 
     protected GeneratableLevel level; // Level that we are generating
 
     protected long genStart = -1; // System time at the moment of first generate() call
 
+    protected int[] field; // Generators only place colors, masters are built when field is full
+
+    private int filled = 0; // Number of cells placed by generator
+    private int frontier = 0; // Every cell before this index is already placed
+
     public static final String[] types = {"Fill", "Point", "Symmetric", "Linear"}; // All available generators
 
     public Generator(GeneratableLevel level) {
         this.level = level;
+        random = new Random(level.getSeed());
         level.getDebug().println("Using \"" + getName() + "\" generator");
+
+        field = new int[level.getWidth() * level.getHeight()];
+        Arrays.fill(field, -1); // Field is empty
     }
 
+    // Step mode, makes one generation step per call so level can be rendered while it grows
     public final void generate() {
         if (genStart == -1) genStart = System.currentTimeMillis();
 
@@ -34,35 +41,77 @@ public abstract class Generator {
         gen();
     }
 
+    // Batch mode, generates whole level in one call
+    public final GenerationStats generateAll() {
+        long start = System.nanoTime();
+        if (genStart == -1) genStart = System.currentTimeMillis();
+
+        int steps = 0;
+        while (!isGenerated()) {
+            gen();
+            steps++;
+        }
+        long generated = System.nanoTime();
+
+        onLevelGenerated();
+
+        GenerationStats stats = new GenerationStats(getName(), level.getWidth(), level.getHeight(), level.getMasters().size(), steps, generated - start, System.nanoTime() - start);
+        level.getDebug().println("Generated level: " + stats);
+        return stats;
+    }
+
     // Generation algorithm
     protected abstract void gen();
 
+    protected boolean canSetCell(int x, int y) {
+        return x >= 0 && x < level.getWidth() && y >= 0 && y < level.getHeight() && field[x + y * level.getWidth()] == -1;
+    }
+
+    protected boolean setCell(int x, int y, int colorID) {
+        // All generators place cells through this method or setRows, so we always know how much is left
+        if (!canSetCell(x, y)) return false;
+
+        field[x + y * level.getWidth()] = colorID;
+        filled++;
+        return true;
+    }
+
+    protected void setRows(int y, int[] colors) {
+        // Places whole rows starting from row y at once, these rows must be empty
+        System.arraycopy(colors, 0, field, y * level.getWidth(), colors.length);
+        filled += colors.length;
+    }
+
+    protected int randomColor() {
+        return random.nextInt(level.getColors().length);
+    }
+
+    protected int nextFreeCell() {
+        // Moving frontier over placed cells, every cell is passed only once during generation
+        while (frontier < field.length && field[frontier] != -1) frontier++;
+        return frontier < field.length ? frontier : -1; // -1 if there are no free cells
+    }
+
     protected void onLevelGenerated() {
-        level.getWindow().statusBar[1] = "Calculating borders";
-        level.getWindow().render();
-
-        ArrayList<CellMaster> masters = level.getMasters();
-        for (int i = 0; i < masters.size(); i++) {
-            CellMaster master = masters.get(i);
-            master.setID(i); // Setting ID to master
-            level.needUpdate(master); // Updating master to calculate borders and find neighbors
-        }
+        // Building masters, their borders and neighbors from colors in one pass
+        level.buildRegions(field);
+        field = null; // Level has everything now
 
         level.onLevelGenerated(); // Saying level that we are done
     }
 
+    public int getColorID(int x, int y) {
+        // Color that is placed on unfinished level, -1 if there is nothing
+        if (field == null || x < 0 || x >= level.getWidth() || y < 0 || y >= level.getHeight()) return -1;
+        return field[x + y * level.getWidth()];
+    }
+
     public int getGeneratedPercent() {
-        int generated = 0;
-        for (CellMaster master : level.getMasters()) generated += master.getCells().size();
-        return generated * 100 / (level.getWidth() * level.getHeight());
+        return (int) ((long) filled * 100 / (level.getWidth() * level.getHeight()));
     }
 
     public boolean isGenerated() {
-        int width = level.getWidth();
-        for (int i = 0; i < width * level.getHeight(); i++) {
-            if (level.getCell(i % width, i / width) == null) return false; // Not generated if there is null cell
-        }
-        return true;
+        return filled == level.getWidth() * level.getHeight(); // Generated if every cell is placed
     }
 
     public abstract String getName();
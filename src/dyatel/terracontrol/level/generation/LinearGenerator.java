@@ -1,8 +1,5 @@
 package dyatel.terracontrol.level.generation;
 
-import dyatel.terracontrol.level.Cell;
-import dyatel.terracontrol.level.CellMaster;
-
 public class LinearGenerator extends Generator {
 
     private int y = 0;
@@ -15,21 +12,18 @@ public class LinearGenerator extends Generator {
         int width = level.getWidth();
         int height = level.getHeight();
 
-        int colorID = random.nextInt(level.getColors().length);
+        int colorID = randomColor();
         for (int x = 0; x < width; x++) {
             int yy = y + random.nextInt(3) - 1;
-            if (level.canSetCell(x, yy)) {
-                new Cell(x, yy, new CellMaster(colorID, level));
-            }
+            setCell(x, yy, colorID);
         }
 
         if (y < height - 1)
             y++;
         else {
-            for (int i = 0; i < width * height; i++) {
-                if (level.canSetCell(i % width, i / width)) {
-                    new Cell(i % width, i / width, new CellMaster(level));
-                }
+            // Filling what is left
+            for (int i = nextFreeCell(); i != -1; i = nextFreeCell()) {
+                setCell(i % width, i / width, randomColor());
             }
         }
     }
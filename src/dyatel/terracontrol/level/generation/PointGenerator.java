@@ -1,51 +1,202 @@
 package dyatel.terracontrol.level.generation;
 
-import dyatel.terracontrol.level.Cell;
-import dyatel.terracontrol.level.CellMaster;
-import dyatel.terracontrol.util.Debug;
+import dyatel.terracontrol.util.SplitRandom;
 
-import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class PointGenerator extends Generator {
 
+    // Every cell takes color of nearest point. Points are scattered by buckets, each bucket has its own
+    // randomizer split from level seed, so color of a cell depends only on seed and its position.
+    // Tiles are colored in parallel and seams match without any extra work, whatever number of cores we have.
+
+    private static final int BUCKET = 2; // Size of point bucket
+    private static final int TILE = 64; // Size of tile that one task colors
+
+    private static final ForkJoinPool pool = new ForkJoinPool(); // Shared by all point generators
+
+    private SplitRandom seedRandom; // Randomizer that buckets are split from
+    private int hashSeed; // Seed for border noise
+
+    private int bucketsX, bucketsY; // Number of buckets
+    private int[] bucketStart; // Index of first point of every bucket, last value is number of points
+    private int[] points; // Points packed as x | y << 4 | colorID << 8, coordinates are inside bucket
+
+    private int tileRow = 0; // Next row of tiles to color
+
     public PointGenerator(GeneratableLevel level) {
         super(level);
 
-        Debug debug = level.getDebug();
+        long seed = level.getSeed();
+        seedRandom = new SplitRandom(seed);
+        hashSeed = (int) (seed ^ (seed >>> 32));
+
+        // Choosing how many points we`ll have, it`s 40-80% of cells like before
+        double density = 0.4 + 0.4 * seedRandom.nextDouble();
 
-        // Adding masters
-        int width = level.getWidth();
-        int height = level.getHeight();
-        int minMasters = width * height * 2 / 5;
-        int maxMasters = width * height * 4 / 5;
-        int masters = random.nextInt(maxMasters - minMasters + 1) + minMasters;
-        debug.println("Going to add " + masters + " masters");
-        for (int i = 0; i < masters; i++) {
+        // Counting points in every bucket, then placing them
+        bucketsX = (level.getWidth() + BUCKET - 1) / BUCKET;
+        bucketsY = (level.getHeight() + BUCKET - 1) / BUCKET;
+        bucketStart = new int[bucketsX * bucketsY + 1];
+        pool.invoke(new BucketTask(0, bucketsX * bucketsY, density, false));
+        for (int i = 0; i < bucketsX * bucketsY; i++) bucketStart[i + 1] += bucketStart[i];
+        points = new int[bucketStart[bucketsX * bucketsY]];
+        pool.invoke(new BucketTask(0, bucketsX * bucketsY, density, true));
+
+        level.getDebug().println("Added " + points.length + " points");
+    }
+
+    protected void gen() {
+        // Coloring one row of tiles per step
+        int tilesX = (level.getWidth() + TILE - 1) / TILE;
+        int rows = Math.min(TILE, level.getHeight() - tileRow * TILE);
+        int[] colors = new int[rows * level.getWidth()];
+        pool.invoke(new TileTask(tileRow, 0, tilesX, colors));
+
+        setRows(tileRow * TILE, colors);
+        tileRow++;
+    }
+
+    private int bucketPoints(int bucket, double density, SplitRandom random) {
+        // Random rounding keeps average density even on small buckets
+        int area = Math.min(BUCKET, level.getWidth() - bucket % bucketsX * BUCKET) * Math.min(BUCKET, level.getHeight() - bucket / bucketsX * BUCKET);
+        int count = (int) (area * density + random.nextDouble());
+        if (bucket == 0) count = Math.max(count, 1); // Level must have at least one point
+        return count;
+    }
+
+    private void fillBucket(int bucket, double density, boolean place) {
+        SplitRandom random = seedRandom.split(bucket);
+        int count = bucketPoints(bucket, density, random);
+        if (!place) {
+            bucketStart[bucket + 1] = count;
+            return;
+        }
+
+        int width = Math.min(BUCKET, level.getWidth() - bucket % bucketsX * BUCKET);
+        int height = Math.min(BUCKET, level.getHeight() - bucket / bucketsX * BUCKET);
+        int colors = level.getColors().length;
+        for (int i = 0; i < count; i++) {
             int x = random.nextInt(width);
             int y = random.nextInt(height);
-            if (level.canSetCell(x, y)) {
-                new Cell(x, y, new CellMaster(level));
-            }
+            points[bucketStart[bucket] + i] = x | y << 4 | random.nextInt(colors) << 8;
         }
-        debug.println("Added " + level.getMasters().size() + " masters");
     }
 
-    protected void gen() {
-        // Generating every master
-        for (CellMaster master : level.getMasters()) {
-            ArrayList<Cell> borders = master.getBorderCells();
-            for (Cell cell : borders) {
-                // Determining where to try putting new cell
-                int x = cell.getX() + random.nextInt(3) - 1; // 0,1,2 - 1 = -1, 0, 1
-                int y = cell.getY() + random.nextInt(3) - 1;
-                if (x != cell.getX() && y != cell.getY()) continue; // Preventing diagonal generation
-                if (level.canSetCell(x, y)) new Cell(x, y, master);
+    private int findColor(int x, int y) {
+        int cell = x + y * level.getWidth();
+        int bucketX = x / BUCKET;
+        int bucketY = y / BUCKET;
+
+        // Looking through rings of buckets until no point outside can be closer
+        int best = Integer.MAX_VALUE;
+        int bestIndex = -1;
+        int bestColor = 0;
+        for (int r = 0; ; r++) {
+            for (int by = bucketY - r; by <= bucketY + r; by++) {
+                if (by < 0 || by >= bucketsY) continue;
+                for (int bx = bucketX - r; bx <= bucketX + r; bx++) {
+                    if (bx < 0 || bx >= bucketsX) continue;
+                    if (by != bucketY - r && by != bucketY + r && bx != bucketX - r && bx != bucketX + r) {
+                        bx = bucketX + r - 1; // Skipping inner buckets, they were checked already
+                        continue;
+                    }
+
+                    int bucket = bx + by * bucketsX;
+                    for (int i = bucketStart[bucket]; i < bucketStart[bucket + 1]; i++) {
+                        int point = points[i];
+                        int dx = bx * BUCKET + (point & 0xf) - x;
+                        int dy = by * BUCKET + (point >> 4 & 0xf) - y;
+
+                        // Distance with some noise, so borders are not straight lines, ties go to first point
+                        int score = ((dx < 0 ? -dx : dx) + (dy < 0 ? -dy : dy)) * 4 + noise(cell, i);
+                        if (score < best || score == best && i < bestIndex) {
+                            best = score;
+                            bestIndex = i;
+                            bestColor = point >>> 8;
+                        }
+                    }
+                }
             }
+
+            // Points in next ring are at least r * BUCKET + 1 cells away
+            if (best < (r * BUCKET + 1) * 4) return bestColor;
         }
     }
 
+    private int noise(int cell, int point) {
+        int h = (cell * 0x9e3779b1) ^ (point * 0x85ebca6b) ^ hashSeed;
+        h ^= h >>> 16;
+        h *= 0x7feb352d;
+        h ^= h >>> 15;
+        return h & 3;
+    }
+
     public String getName() {
         return "Point";
     }
 
+    private class BucketTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private int from, to; // Buckets
+        private double density; // Points per cell
+        private boolean place; // Are we placing points or only counting them
+
+        BucketTask(int from, int to, double density, boolean place) {
+            this.from = from;
+            this.to = to;
+            this.density = density;
+            this.place = place;
+        }
+
+        protected void compute() {
+            if (to - from <= 4096) {
+                for (int i = from; i < to; i++) fillBucket(i, density, place);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new BucketTask(from, middle, density, place), new BucketTask(middle, to, density, place));
+        }
+
+    }
+
+    private class TileTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private int row; // Row of tiles
+        private int from, to; // Tiles in row
+        private int[] colors; // Colors of all cells in row of tiles
+
+        TileTask(int row, int from, int to, int[] colors) {
+            this.row = row;
+            this.from = from;
+            this.to = to;
+            this.colors = colors;
+        }
+
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new TileTask(row, from, middle, colors), new TileTask(row, middle, to, colors));
+                return;
+            }
+
+            // Coloring tile, every cell is computed independently
+            int width = level.getWidth();
+            int endX = Math.min((from + 1) * TILE, width);
+            int endY = Math.min((row + 1) * TILE, level.getHeight());
+            for (int y = row * TILE; y < endY; y++) {
+                for (int x = from * TILE; x < endX; x++) {
+                    colors[x + (y - row * TILE) * width] = findColor(x, y);
+                }
+            }
+        }
+
+    }
+
 }
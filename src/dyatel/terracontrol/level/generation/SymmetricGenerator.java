@@ -1,8 +1,5 @@
 package dyatel.terracontrol.level.generation;
 
-import dyatel.terracontrol.level.Cell;
-import dyatel.terracontrol.level.CellMaster;
-
 public class SymmetricGenerator extends Generator {
 
     private int y;
@@ -18,12 +15,12 @@ public class SymmetricGenerator extends Generator {
         int segmentHeight = height / 2;
 
         for (int x = 0; x < segmentWidth; x++) {
-            int colorID = random.nextInt(level.getColors().length);
+            int colorID = randomColor();
 
-            new Cell(x, y, new CellMaster(colorID, level)); // Top left
-            new Cell(width - 1 - x, y, new CellMaster(colorID, level)); // Top right
-            new Cell(x, height - 1 - y, new CellMaster(colorID, level)); // Bottom left
-            new Cell(width - 1 - x, height - 1 - y, new CellMaster(colorID, level)); // Bottom right
+            setCell(x, y, colorID); // Top left
+            setCell(width - 1 - x, y, colorID); // Top right
+            setCell(x, height - 1 - y, colorID); // Bottom left
+            setCell(width - 1 - x, height - 1 - y, colorID); // Bottom right
         }
 
         if (y < segmentHeight - 1) {
@@ -31,13 +28,13 @@ public class SymmetricGenerator extends Generator {
         } else {
             if (width % 2 == 1) {
                 for (int y = 0; y < height; y++) {
-                    new Cell(segmentWidth, y, new CellMaster(level));
+                    setCell(segmentWidth, y, randomColor());
                 }
             }
 
             if (height % 2 == 1) {
                 for (int x = 0; x < width; x++) {
-                    new Cell(x, segmentHeight, new CellMaster(level));
+                    if (canSetCell(x, segmentHeight)) setCell(x, segmentHeight, randomColor()); // Center is already placed if width is odd
                 }
             }
         }
@@ -1,12 +1,10 @@
 package dyatel.terracontrol.network;
 
-import dyatel.terracontrol.level.Cell;
 import dyatel.terracontrol.level.CellMaster;
 import dyatel.terracontrol.level.ClientLevel;
 import dyatel.terracontrol.util.DataArray;
+import dyatel.terracontrol.util.Debug;
 import dyatel.terracontrol.util.ErrorLogger;
-import dyatel.terracontrol.window.Client;
-import dyatel.terracontrol.window.GameWindow;
 
 import java.net.DatagramPacket;
 import java.net.InetAddress;
@@ -14,10 +12,10 @@ import java.util.ArrayList;
 
 public class ClientConnection extends Connection {
 
-    protected GameWindow window; // Window
-
     private ClientLevel level; // Level
 
+    private String status = ""; // What we are doing now
+
     private InetAddress address; // Server address
     private int port; // Server port
 
@@ -28,14 +26,14 @@ public class ClientConnection extends Connection {
     private int receivedMasters = 0; // Number of received masters
     private int receivedCells = 0; // Number of received cells
 
-    public ClientConnection(String address, int port, Client client) throws Exception {
-        super(client);
+    public ClientConnection(String address, int port, ClientLevel level, Debug debug) throws Exception {
+        super(debug);
 
         this.address = InetAddress.getByName(address);
         this.port = port;
-        window = client;
 
-        level = client.getLevel();
+        this.level = level;
+        level.setConnection(this); // Players will send turns through us
 
         start(); // Starting receiver
         connect(); // Starting connecter
@@ -54,7 +52,7 @@ public class ClientConnection extends Connection {
         if (code == CODE_DATA) {
             if (!connected) {
                 debug.println("Connected!");
-                window.statusBar[1] = "";
+                status = "";
 
                 // Placing data into data wrapper
                 DataArray data = new DataArray();
@@ -99,7 +97,7 @@ public class ClientConnection extends Connection {
                     receivedMasters++;
                 }
             }
-            window.statusBar[1] = "Masters: " + receivedMasters * 100 / masters.size() + "%";
+            status = "Masters: " + receivedMasters * 100 / masters.size() + "%";
         } else if (code == CODE_CELLS) {
             ArrayList<CellMaster> masters = level.getMasters();
             int width = level.getWidth();
@@ -110,11 +108,11 @@ public class ClientConnection extends Connection {
                 // Parsing cells
                 for (int i = start; i < start + dataR.length - 1; i++) {
                     int masterID = Integer.parseInt(dataR[1 + i - start]);
-                    new Cell(i % width, i / width, masters.get(masterID));
+                    level.setCell(i % width, i / width, masters.get(masterID));
                     receivedCells++;
                 }
             }
-            window.statusBar[1] = "Cells: " + receivedCells * 100 / cells + "%";
+            status = "Cells: " + receivedCells * 100 / cells + "%";
         } else if (code == CODE_TURN) {
             int turn = Integer.parseInt(dataR[0]);
             // Making out turn
@@ -197,7 +195,7 @@ public class ClientConnection extends Connection {
                     }
                 }
 
-                window.statusBar[1] = "Waiting...";
+                status = "Waiting...";
                 level.ready();
                 send(CODE_READY, "");
             }
@@ -205,6 +203,10 @@ public class ClientConnection extends Connection {
         levelReceiver.start();
     }
 
+    public String getStatus() {
+        return status;
+    }
+
     public void send(byte code, String message) {
         send(code, message, address, port);
     }
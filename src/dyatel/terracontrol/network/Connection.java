@@ -2,7 +2,6 @@ package dyatel.terracontrol.network;
 
 import dyatel.terracontrol.util.Debug;
 import dyatel.terracontrol.util.ErrorLogger;
-import dyatel.terracontrol.window.GameWindow;
 
 import java.io.IOException;
 import java.net.DatagramPacket;
@@ -32,15 +31,15 @@ public abstract class Connection {
 
     protected int traffic = 0; // Transmitted and received bytes
 
-    public Connection(GameWindow window) throws Exception {
-        debug = window.getDebug();
+    public Connection(Debug debug) throws Exception {
+        this.debug = debug;
 
         socket = new DatagramSocket(); // Creating socket at any available port
         debug.println("Bound socket at " + socket.getLocalPort());
     }
 
-    public Connection(int port, GameWindow window) throws Exception {
-        debug = window.getDebug();
+    public Connection(int port, Debug debug) throws Exception {
+        this.debug = debug;
 
         socket = new DatagramSocket(port); // Creating socket at specific port, may throw exception
         debug.println("Bound socket at " + socket.getLocalPort());
@@ -100,6 +99,10 @@ public abstract class Connection {
         return packet;
     }
 
+    public int getPort() {
+        return socket.getLocalPort();
+    }
+
     public String getTraffic() {
         if (traffic / 1024 > 0) {
             if (traffic / 1024 / 1024 > 0) {
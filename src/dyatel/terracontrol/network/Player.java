@@ -4,7 +4,6 @@ import dyatel.terracontrol.level.CellMaster;
 import dyatel.terracontrol.level.Level;
 
 import java.net.InetAddress;
-import java.util.ArrayList;
 
 public class Player {
 
@@ -73,6 +72,7 @@ public class Player {
 
     public void incrementTurns() {
         turns++;
+        level.onTurn(this, -1); // Skipped turn
     }
 
     public void addTurn(int colorID) {
@@ -80,6 +80,13 @@ public class Player {
 
         lastTurn = colorID;
         turns++;
+        level.onTurn(this, colorID);
+    }
+
+    public void setTurns(int turns, int lastTurn) {
+        // Used when game is restored, nothing is changed on level
+        this.turns = turns;
+        this.lastTurn = lastTurn;
     }
 
     public int getTurns() {
@@ -99,16 +106,7 @@ public class Player {
     }
 
     public int canCapture(int colorID) {
-        int availableCells = 0;
-        if (colorID != -1) {
-            ArrayList<CellMaster> neighbors = master.getNeighbors();
-            for (CellMaster neighbor : neighbors) {
-                if (neighbor.getColorID() == colorID && neighbor.getOwner() == null) {
-                    availableCells += neighbor.getCells().size();
-                }
-            }
-        }
-        return availableCells;
+        return master.getCapturable(colorID); // Master counts free cells around it by color
     }
 
     public boolean haveAvailableTurns() {
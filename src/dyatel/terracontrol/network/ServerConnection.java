@@ -2,9 +2,9 @@ package dyatel.terracontrol.network;
 
 import dyatel.terracontrol.level.CellMaster;
 import dyatel.terracontrol.level.ServerLevel;
+import dyatel.terracontrol.util.Debug;
 import dyatel.terracontrol.util.ErrorLogger;
-import dyatel.terracontrol.util.Util;
-import dyatel.terracontrol.window.Server;
+import dyatel.terracontrol.util.SplitRandom;
 
 import java.net.DatagramPacket;
 import java.net.InetAddress;
@@ -22,10 +22,11 @@ public class ServerConnection extends Connection {
     private int currentPlayer; // ID of player that is making turn
     private int state = -1; // -1 - waiting connections, 0 - playing, 1 - end
 
-    public ServerConnection(int port, Server server) throws Exception {
-        super(port, server);
+    public ServerConnection(int port, ServerLevel level, Debug debug) throws Exception {
+        super(port, debug);
 
-        level = server.getLevel();
+        this.level = level;
+        level.setConnection(this); // Players will send messages through us
 
         start(); // Starting receiver
     }
@@ -100,7 +101,7 @@ public class ServerConnection extends Connection {
                 player.ready();
 
                 if (++ready == players.length) {
-                    level.setState(3);
+                    level.startGame();
                     sendEveryoneExcluding(CODE_STATE, "0", -1); // Sending to everyone
                     startTurnManager();
                 }
@@ -142,7 +143,7 @@ public class ServerConnection extends Connection {
         int same = 0; // Needed to determine draw
         Player winner = null; // Player that won the game
         for (Player player : players) {
-            int cells = player.getMaster().getCells().size();
+            int cells = player.getMaster().getCellCount();
             if (cells >= max) {
                 if (winner != null) winner.setIsWinner(false);
                 winner = player;
@@ -161,7 +162,7 @@ public class ServerConnection extends Connection {
         }
         // Send result to every player
         for (Player player : players) {
-            int cells = player.getMaster().getCells().size();
+            int cells = player.getMaster().getCellCount();
             if (cells < max) {
                 player.send(CODE_STATE, "2" + winners);
             } else if (cells == max) {
@@ -187,7 +188,7 @@ public class ServerConnection extends Connection {
         turnManager = new Thread() {
             public void run() {
                 int lastPlayer = -1; // Last player that we asked for a turn
-                currentPlayer = Util.getRandom().nextInt(players.length); // First player
+                currentPlayer = new SplitRandom(level.getSeed()).split(1).nextInt(players.length); // First player, it depends only on level seed
                 while (running && state == 0) {
                     String message = "";
 
@@ -14,6 +14,12 @@ public class DataArray {
         strings = new HashMap<String, String>();
     }
 
+    public DataArray(DataArray data) {
+        booleans = new HashMap<String, Boolean>(data.booleans);
+        integers = new HashMap<String, Integer>(data.integers);
+        strings = new HashMap<String, String>(data.strings);
+    }
+
     public void fillBoolean(String key, boolean data) {
         booleans.put(key, data);
     }
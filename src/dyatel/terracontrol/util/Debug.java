@@ -6,6 +6,8 @@ public class Debug {
     public static final Debug spDebug = new Debug("[TerraControl]");
     public static final Debug clientDebug = new Debug("[Client]");
     public static final Debug serverDebug = new Debug("[Server]");
+    public static final Debug tournamentDebug = new Debug("[Tournament]");
+    public static final Debug noDebug = new Debug(null); // Prints nothing
 
     private String prefix;
 
@@ -14,6 +16,7 @@ public class Debug {
     }
 
     public void println(String s) {
+        if (prefix == null) return;
         System.out.println(prefix + " > " + s);
     }
 
@@ -3,6 +3,7 @@ package dyatel.terracontrol.util;
 import dyatel.terracontrol.Launcher;
 
 import javax.swing.*;
+import java.awt.*;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.PrintStream;
@@ -21,9 +22,13 @@ public class ErrorLogger {
             // Checking if already have same exception
             for (Exception err : errors) if (err.toString().equals(e.toString())) return;
 
-            // Creating error dialog
-            String message = "Something went wrong!\nClose your launcher and check \"errors\" directory!";
-            JOptionPane.showMessageDialog(Launcher.getLauncher(), message, "TerraControl Error", JOptionPane.ERROR_MESSAGE);
+            if (GraphicsEnvironment.isHeadless()) {
+                e.printStackTrace(); // Nobody will see dialog
+            } else {
+                // Creating error dialog
+                String message = "Something went wrong!\nClose your launcher and check \"errors\" directory!";
+                JOptionPane.showMessageDialog(Launcher.getLauncher(), message, "TerraControl Error", JOptionPane.ERROR_MESSAGE);
+            }
 
             // Adding exception to log
             errors.add(e);
@@ -0,0 +1,45 @@
+package dyatel.terracontrol.util;
+
+import java.util.Arrays;
+
+public class IntList {
+
+    private int[] data; // Values
+    private int size = 0; // Number of used values
+
+    public IntList() {
+        this(8);
+    }
+
+    public IntList(int capacity) {
+        data = new int[Math.max(capacity, 1)];
+    }
+
+    public void add(int value) {
+        if (size == data.length) data = Arrays.copyOf(data, data.length * 2);
+        data[size++] = value;
+    }
+
+    public void addAll(IntList list) {
+        if (size + list.size > data.length) data = Arrays.copyOf(data, Math.max(data.length * 2, size + list.size));
+        System.arraycopy(list.data, 0, data, size, list.size);
+        size += list.size;
+    }
+
+    public int get(int index) {
+        return data[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+}
@@ -0,0 +1,38 @@
+package dyatel.terracontrol.util;
+
+public class SplitRandom {
+
+    // Small SplitMix64 randomizer, split() gives independent streams so parallel work stays repeatable
+
+    private static final long GAMMA = 0x9e3779b97f4a7c15L; // Golden ratio increment
+
+    private long state; // Current state
+
+    public SplitRandom(long seed) {
+        state = mix(seed);
+    }
+
+    public SplitRandom split(long key) {
+        // Stream depends only on our seed and key, not on how many numbers were taken before
+        return new SplitRandom(state ^ mix(key * GAMMA + GAMMA));
+    }
+
+    public long nextLong() {
+        return mix(state += GAMMA);
+    }
+
+    public int nextInt(int bound) {
+        return (int) (((nextLong() >>> 33) * bound) >>> 31); // High 31 bits scaled to bound
+    }
+
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+}
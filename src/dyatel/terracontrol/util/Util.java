@@ -4,17 +4,14 @@ import java.util.Random;
 
 public class Util {
 
-    private static Random random = new Random();
+    // Randomizers aren`t global, every level makes its own from seed, so levels made in parallel don`t affect each other
 
-    public static Random getRandom() {
-        return random;
-    }
-
-    public static void updateRandom(String seed) {
-        if (seed.equals(""))
-            random = new Random();
+    public static long parseSeed(String seed) {
+        // Same text always gives same seed, empty one gives random seed
+        if (seed == null || seed.equals(""))
+            return new Random().nextLong();
         else
-            random = new Random(seed.hashCode());
+            return seed.hashCode();
     }
 
 }
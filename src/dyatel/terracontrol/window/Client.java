@@ -16,8 +16,9 @@ public class Client extends GameWindow {
 
         // Initialization goes here
         screen = new Screen(width, height);
-        level = new ClientLevel(this);
-        connection = new ClientConnection(data.getString("address"), data.getInteger("port"), this);
+        level = new ClientLevel(debug);
+        view = new ClientLevelView(getLevel(), this);
+        connection = new ClientConnection(data.getString("address"), data.getInteger("port"), getLevel(), debug);
 
         // Creating main loop
         thread = new Thread(this, "Client");
@@ -25,7 +26,7 @@ public class Client extends GameWindow {
     }
 
     protected void update() {
-        level.update();
+        view.update();
     }
 
     public ClientLevel getLevel() {
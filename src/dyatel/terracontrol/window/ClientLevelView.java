@@ -0,0 +1,121 @@
+package dyatel.terracontrol.window;
+
+import dyatel.terracontrol.level.CellMaster;
+import dyatel.terracontrol.level.ClientLevel;
+import dyatel.terracontrol.network.Player;
+import dyatel.terracontrol.util.Color;
+import dyatel.terracontrol.window.button.Button;
+import dyatel.terracontrol.window.button.ButtonController;
+import dyatel.terracontrol.window.button.TurnButton;
+
+public class ClientLevelView extends LevelView<ClientLevel> implements TurnableView {
+
+    private ButtonController buttons; // Buttons for making turns
+    private int currentColor; // Chosen color
+    private int currentColorID; // Chosen color array index
+    private int shownColorID = -1, shownTurns; // Highlighting that was drawn
+
+    public ClientLevelView(ClientLevel level, GameWindow window) {
+        super(level, window);
+    }
+
+    protected void onLevelInitialized() {
+        // Adding buttons
+        int[] colors = level.getColors();
+        buttons = new ButtonController();
+        for (int i = 0; i < colors.length; i++) {
+            int buttonSpacing = Button.getSize() + (Button.getHoveringSize() - Button.getSize() + 1) * 2;
+            int offset = (window.getHeight() - window.getFieldHeight()) / 2;
+            new TurnButton(offset + buttonSpacing * i, window.getFieldHeight() + offset, colors[i], buttons, this);
+        }
+    }
+
+    protected void sideUpdate() {
+        // Printing connection state while level is not running
+        int state = level.getState();
+        if (state == -1 && level.getConnection() != null) window.statusBar[1] = level.getConnection().getStatus();
+        if (!initialized) return;
+
+        // Resetting chosen color
+        currentColor = 0;
+        currentColorID = -1;
+        buttons.update(mouseX, mouseY); // Updating buttons
+
+        // Highlighted cells depend on chosen color and on our border, colors are highlighted only while we are playing
+        Player current = level.getClientPlayer();
+        int highlight = level.getState() == 0 ? currentColorID : -1;
+        int turns = current == null ? 0 : current.getTurns();
+        if (highlight != shownColorID || (highlight != -1 && turns != shownTurns)) invalidate();
+        shownColorID = highlight;
+        shownTurns = turns;
+
+        // Printing current state
+        switch (state) {
+            case 0:
+                window.statusBar[1] = level.isTurnNeeded() ? "Your move!" : "Wait...";
+                break;
+            case 1:
+                window.statusBar[1] = "You won!";
+                break;
+            case 2:
+                window.statusBar[1] = "You lost...";
+                break;
+            case 3:
+                window.statusBar[1] = "Draw.";
+                break;
+        }
+
+        if (state > 0) {
+            if (colorFading < 0xff) {
+                colorFading += 4;
+                invalidate();
+            }
+            return;
+        }
+
+        // Printing sent/received data in the status bar
+        window.statusBar[5] = level.getConnection().getTraffic();
+
+        // Calculating number of cells that we can capture
+        Player player = level.getClientPlayer();
+        int availableCells = player.canCapture(currentColorID);
+        window.statusBar[4] = String.valueOf(player.getMaster().getCellCount() + (availableCells > 0 ? "(+" + availableCells + ")" : "") + " cells");
+
+        // Making a turn if needed
+        if (mouse.isClicked()) level.makeTurn(currentColorID);
+    }
+
+    protected int getColor(CellMaster master) {
+        if (master.getColorID() == -1) return -1; // Master is not received yet
+
+        int[] colors = level.getColors();
+        int state = level.getState();
+        Player player = level.getClientPlayer();
+        if (currentColorID == -1 || state != 0) {
+            if (state > 0 && (master.getOwner() == null || !master.getOwner().isWinner())) {
+                return Color.subtract(colors[master.getColorID()], colorFading, colorFading, colorFading);
+            }
+            return colors[master.getColorID()];
+        } else if (master.getOwner() == player || (master.getOwner() == null && player.getMaster().isNeighbor(master) && master.getColorID() == currentColorID)) {
+            return currentColor;
+        }
+        return Color.subtract(colors[master.getColorID()], 0xaa, 0xaa, 0xaa);
+    }
+
+    public void postRender(Screen screen) {
+        if (!initialized) return;
+
+        buttons.render(screen);
+    }
+
+    public boolean isTurnAvailable(int color) {
+        Player player = level.getClientPlayer();
+        return player != null && player.canCapture(level.getColorID(color)) > 0;
+    }
+
+    public void highlightTurn(int color) {
+        currentColor = color;
+        currentColorID = level.getColorID(color);
+    }
+
+}
@@ -0,0 +1,71 @@
+package dyatel.terracontrol.window;
+
+import dyatel.terracontrol.util.IntList;
+
+public class FieldImage {
+
+    // Level field drawn with one cell size, it remembers which cells changed since they were drawn.
+    // Areas are in cells, x2 and y2 are exclusive.
+
+    private static final int maxAreas = 64; // More changed areas than this are drawn as whole field
+
+    private Screen screen; // Pixels of whole field, null if field is drawn straight on window screen
+    private int cellSize; // Cell side in pixels
+
+    private final IntList changedAreas = new IntList(); // Areas to draw again: x1, y1, x2, y2 for every area
+    private boolean changedAll = true; // Whole field must be drawn again
+
+    public FieldImage() {
+
+    }
+
+    public FieldImage(int width, int height, int cellSize) {
+        this.cellSize = cellSize;
+
+        // Every cell takes gap on the right and below it
+        screen = new Screen(width * (cellSize + 1), height * (cellSize + 1));
+    }
+
+    public synchronized void areaChanged(int x1, int y1, int x2, int y2) {
+        if (changedAll) return;
+        if (changedAreas.size() == maxAreas * 4) {
+            invalidate();
+            return;
+        }
+
+        changedAreas.add(x1);
+        changedAreas.add(y1);
+        changedAreas.add(x2);
+        changedAreas.add(y2);
+    }
+
+    public synchronized void invalidate() {
+        changedAll = true;
+        changedAreas.clear();
+    }
+
+    public synchronized IntList takeChanges() {
+        // Returns changed areas or null if everything changed, changes after this wait for next call
+        IntList areas = null;
+        if (!changedAll) {
+            areas = new IntList(changedAreas.size());
+            areas.addAll(changedAreas);
+        }
+        changedAll = false;
+        changedAreas.clear();
+        return areas;
+    }
+
+    public Screen getScreen() {
+        return screen;
+    }
+
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    public static long getPixels(int width, int height, int cellSize) {
+        return (long) width * (cellSize + 1) * height * (cellSize + 1);
+    }
+
+}
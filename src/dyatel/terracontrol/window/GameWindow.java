@@ -3,7 +3,6 @@ package dyatel.terracontrol.window;
 import dyatel.terracontrol.input.Keyboard;
 import dyatel.terracontrol.input.Mouse;
 import dyatel.terracontrol.level.BasicLevel;
-import dyatel.terracontrol.level.Level;
 import dyatel.terracontrol.network.Connection;
 import dyatel.terracontrol.util.DataArray;
 import dyatel.terracontrol.util.Debug;
@@ -30,7 +29,8 @@ public abstract class GameWindow extends Canvas implements Runnable {
     protected Screen screen; // Renderer
     protected Keyboard keyboard; // Keyboard input manager
     protected Mouse mouse; // Mouse input manager
-    protected Level level; // Level
+    protected BasicLevel level; // Level
+    protected LevelView<?> view; // Level view
     protected Connection connection; // Connection manager
 
     public String[] statusBar = {"", "", "", "", "", ""}; // Output on bottom panel
@@ -169,12 +169,12 @@ public abstract class GameWindow extends Canvas implements Runnable {
 
         Graphics g = bs.getDrawGraphics();
 
-        level.preRender(screen);
+        view.preRender(screen);
 
         // Interface background
         screen.render(0, height - statusBarHeight, width, height, 0xffffff, false);
 
-        level.postRender(screen);
+        view.postRender(screen);
 
         screen.draw(g);
 
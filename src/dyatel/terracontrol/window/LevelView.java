@@ -0,0 +1,414 @@
+package dyatel.terracontrol.window;
+
+import dyatel.terracontrol.input.Keyboard;
+import dyatel.terracontrol.input.Mouse;
+import dyatel.terracontrol.level.BasicLevel;
+import dyatel.terracontrol.level.CellMaster;
+import dyatel.terracontrol.level.LevelListener;
+import dyatel.terracontrol.util.IntList;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+public abstract class LevelView<L extends BasicLevel> implements LevelListener {
+
+    // Shows level in window and turns input into level actions, level itself doesn`t know about us.
+    // Field is kept in image for every recent zoom, only changed cells are drawn there and scrolling just copies image to screen.
+    // Fields too big to keep are drawn straight on screen, screen keeps last frame, so only changed cells are drawn again.
+
+    private static final int maxImages = 4; // Zooms that keep their images
+    private static final long maxCachedPixels = 1 << 24; // Pixels in all kept images
+
+    protected GameWindow window; // Main window
+    protected L level; // Level we are showing
+
+    protected boolean initialized = false; // Is view fitted to initialized level
+
+    protected int xOff, yOff; // Level offset
+    protected int scrollRate = 10; // Pixels per update
+
+    protected int cellSize = 2; // Cell side in pixels
+    protected double zoom; // Zoom
+    protected double zoomStep = 0.5; // Zoom change
+
+    protected Keyboard keyboard; // Keyboard listener
+    protected int keyDelay; // Timer that restricts pressing a key every update (60 times per second!)
+    protected boolean[] keys; // Keyboard keys state
+
+    protected Mouse mouse; // Mouse listener
+    protected int mouseX, mouseY; // Real mouse coordinates based on position in window
+    protected int mouseLX, mouseLY; // Mouse coordinates used on level
+
+    protected int colorFading = 0; // Number to subtract from color for fading
+
+    private final LinkedHashMap<Integer, FieldImage> images = new LinkedHashMap<Integer, FieldImage>(16, 0.75f, true); // Images by cell size in LRU order
+    private long cachedPixels = 0; // Pixels in all images
+    private final FieldImage direct = new FieldImage(); // Changes of field drawn straight on screen
+
+    private static final byte linkRight = 1, linkDown = 2; // Cell has same master as cell on the right or below
+
+    private byte[] links; // Links of every cell, drawing joins cells of one owned master
+    private final FieldImage linkChanges = new FieldImage(); // Areas where links may have changed
+
+    private int[] masterColors = new int[0]; // Color of every master by its node, counted again when something changes
+    private volatile boolean colorsChanged = true; // Master colors must be counted again
+
+    private FieldImage renderedImage; // Image of last frame, null if it was drawn straight
+    private int renderedXOff, renderedYOff, renderedCellSize; // View of last frame
+    private int lastState; // Level state of last update, state changes colors of cells
+
+    protected LevelView(L level, GameWindow window) {
+        this.level = level;
+        this.window = window;
+
+        // Getting and initializing input
+        keyboard = window.getKeyboard();
+        mouse = window.getMouse();
+        mouse.setView(this);
+
+        level.setListener(this);
+    }
+
+    private void init() {
+        // Zooming level to match window size
+        zoom = zoomStep;
+        while (getFieldWidth() <= window.getWidth() && getFieldHeight() <= window.getFieldHeight()) {
+            zoom += zoomStep;
+        }
+        if (zoom > zoomStep) zoom -= zoomStep;
+
+        // Finding right offset
+        correctOffset();
+
+        onLevelInitialized();
+        initialized = true;
+    }
+
+    // Called once when level is initialized and view is fitted to it
+    protected void onLevelInitialized() {
+
+    }
+
+    public final void update() {
+        // Client level is initialized by connection, so we are checking it every update
+        if (!initialized && level.isInitialized()) init();
+
+        // Updating input
+        // Updating key delay, getting key state
+        if (keyDelay > -1) keyDelay--;
+        keys = keyboard.getKeys();
+
+        // Updating mouse coordinates and printing them
+        mouseX = mouse.getX();
+        mouseY = mouse.getY();
+        if (initialized && mouseX > -1 && mouseY > -1 && mouseY < window.getFieldHeight()) {
+            mouseLX = (mouseX + xOff) / (getCellSize() + 1);
+            mouseLY = (mouseY + yOff) / (getCellSize() + 1);
+        } else {
+            // If mouse is out of bounds
+            mouseLX = -1;
+            mouseLY = -1;
+        }
+        window.statusBar[2] = mouseLX + " " + mouseLY;
+
+        level.update();
+        if (level.getState() != lastState) {
+            lastState = level.getState();
+            linkChanges.invalidate(); // Generated level gets masters without telling about it
+            invalidate();
+        }
+
+        if (!initialized) {
+            sideUpdate();
+            return;
+        }
+
+        // Updating offset if needed
+        if (keys[Keyboard.KEY_LEFT]) changeXOff(-scrollRate);
+        if (keys[Keyboard.KEY_UP]) changeYOff(-scrollRate);
+        if (keys[Keyboard.KEY_RIGHT]) changeXOff(scrollRate);
+        if (keys[Keyboard.KEY_DOWN]) changeYOff(scrollRate);
+
+        // Changing zoom by keyboard
+        if (keys[Keyboard.KEY_PLUS]) changeZoom(1);
+        if (keys[Keyboard.KEY_MINUS]) changeZoom(-1);
+
+        sideUpdate();
+    }
+
+    // Status bar and input, specific for every level
+    protected abstract void sideUpdate();
+
+    // Color of master, -1 if it isn`t rendered
+    protected abstract int getColor(CellMaster master);
+
+    // Color of cell without master, -1 if there is nothing to render
+    protected int getColor(int x, int y) {
+        return -1;
+    }
+
+    public void areaChanged(int x1, int y1, int x2, int y2) {
+        // Level may be changed by connection thread
+        colorsChanged = true;
+        linkChanges.areaChanged(x1, y1, x2, y2);
+        synchronized (images) {
+            direct.areaChanged(x1, y1, x2, y2);
+            for (FieldImage image : images.values()) image.areaChanged(x1, y1, x2, y2);
+        }
+    }
+
+    protected void invalidate() {
+        // Every cell looks different now
+        colorsChanged = true;
+        synchronized (images) {
+            direct.invalidate();
+            for (FieldImage image : images.values()) image.invalidate();
+        }
+    }
+
+    public void preRender(Screen screen) {
+        if (!initialized) return;
+
+        if (colorsChanged) updateColors();
+        updateLinks();
+
+        int cellSize = getCellSize();
+        FieldImage image = getImage(cellSize);
+        if (image == null) {
+            // Field is too big to keep, visible cells are drawn straight on screen and every cell moves after scrolling
+            screen.setOffset(xOff, yOff);
+            if (renderedImage != null || xOff != renderedXOff || yOff != renderedYOff || cellSize != renderedCellSize) direct.invalidate();
+            drawChanges(screen, direct.takeChanges(), true);
+        } else {
+            // Image is changed only where cells changed, its visible part is copied to screen when something moved
+            IntList areas = image.takeChanges();
+            drawChanges(image.getScreen(), areas, false);
+            if (areas == null || areas.size() > 0 || image != renderedImage || xOff != renderedXOff || yOff != renderedYOff) {
+                screen.copy(image.getScreen(), xOff, yOff, window.getFieldHeight());
+            }
+        }
+
+        renderedImage = image;
+        renderedXOff = xOff;
+        renderedYOff = yOff;
+        renderedCellSize = cellSize;
+    }
+
+    private void updateColors() {
+        // Colors depend only on masters, so they are counted once for every master instead of every cell
+        colorsChanged = false;
+        if (masterColors.length < level.getRegions().getNodes()) masterColors = new int[level.getRegions().getNodes()];
+        for (CellMaster master : level.getMasters()) masterColors[master.getNode()] = getColor(master);
+    }
+
+    private FieldImage getImage(int cellSize) {
+        // Finding image of this zoom, creating it if it fits into cache
+        long pixels = FieldImage.getPixels(level.getWidth(), level.getHeight(), cellSize);
+        if (pixels > maxCachedPixels) return null;
+
+        synchronized (images) {
+            FieldImage image = images.get(cellSize);
+            if (image != null) return image;
+
+            // Dropping least recently used zooms
+            Iterator<FieldImage> iterator = images.values().iterator();
+            while (iterator.hasNext() && (images.size() >= maxImages || cachedPixels + pixels > maxCachedPixels)) {
+                FieldImage old = iterator.next();
+                cachedPixels -= FieldImage.getPixels(level.getWidth(), level.getHeight(), old.getCellSize());
+                iterator.remove();
+            }
+
+            image = new FieldImage(level.getWidth(), level.getHeight(), cellSize);
+            images.put(cellSize, image);
+            cachedPixels += pixels;
+            return image;
+        }
+    }
+
+    private void drawChanges(Screen screen, IntList areas, boolean visibleOnly) {
+        // Drawing changed areas or whole field if areas are null
+        int cellSize = getCellSize();
+        int xStart = 0;
+        int yStart = 0;
+        int xEnd = level.getWidth();
+        int yEnd = level.getHeight();
+        if (visibleOnly) {
+            yStart = Math.max(yOff / (cellSize + 1), 0); // Restricting min y to 0
+            yEnd = Math.min((yOff + window.getFieldHeight()) / (cellSize + 1) + 1, yEnd); // Restricting max y to height
+            xStart = Math.max(xOff / (cellSize + 1), 0); // Restricting min x to 0
+            xEnd = Math.min((xOff + window.getWidth()) / (cellSize + 1) + 1, xEnd); // Restricting max x to width
+        }
+
+        if (areas == null) {
+            if (visibleOnly) {
+                screen.render(0, 0, window.getWidth(), window.getFieldHeight(), 0, false); // Clearing field
+            } else {
+                screen.render(0, 0, xEnd * (cellSize + 1), yEnd * (cellSize + 1), 0, false);
+            }
+            renderCells(screen, xStart, yStart, xEnd, yEnd);
+            return;
+        }
+
+        for (int i = 0; i < areas.size(); i += 4) {
+            // Cells on the left and above are drawn too, they may be connected with changed cells now
+            int x1 = Math.max(areas.get(i) - 1, xStart);
+            int y1 = Math.max(areas.get(i + 1) - 1, yStart);
+            int x2 = Math.min(areas.get(i + 2), xEnd);
+            int y2 = Math.min(areas.get(i + 3), yEnd);
+            if (x1 >= x2 || y1 >= y2) continue;
+
+            screen.render(x1 * (cellSize + 1), y1 * (cellSize + 1), x2 * (cellSize + 1), y2 * (cellSize + 1), 0, true); // Clearing area
+            renderCells(screen, x1, y1, x2, y2);
+        }
+    }
+
+    private void updateLinks() {
+        // Cells are linked if they have same master, only changed areas are checked again
+        if (links == null) links = new byte[level.getWidth() * level.getHeight()];
+        IntList areas = linkChanges.takeChanges();
+        if (areas == null) {
+            updateLinks(0, 0, level.getWidth(), level.getHeight());
+        } else {
+            // Cells on the left and above are linked to changed cells
+            for (int i = 0; i < areas.size(); i += 4) updateLinks(Math.max(areas.get(i) - 1, 0), Math.max(areas.get(i + 1) - 1, 0), areas.get(i + 2), areas.get(i + 3));
+        }
+    }
+
+    private void updateLinks(int x1, int y1, int x2, int y2) {
+        int width = level.getWidth();
+        for (int y = y1; y < y2; y++) {
+            CellMaster right = level.getMaster(x1, y);
+            for (int x = x1; x < x2; x++) {
+                CellMaster master = right;
+                right = level.getMaster(x + 1, y);
+
+                int link = 0;
+                if (master != null && right == master) link |= linkRight;
+                if (master != null && level.getMaster(x, y + 1) == master) link |= linkDown;
+                links[x + y * width] = (byte) link;
+            }
+        }
+    }
+
+    private void renderCells(Screen screen, int x1, int y1, int x2, int y2) {
+        int width = level.getWidth();
+        int size = getCellSize() + 1; // Cell with gap
+
+        if (level.getMasters().isEmpty()) {
+            // Level is being generated, cells have no masters yet
+            int[] colors = new int[(x2 - x1) * (y2 - y1)];
+            for (int y = y1; y < y2; y++) {
+                for (int x = x1; x < x2; x++) colors[x - x1 + (y - y1) * (x2 - x1)] = getColor(x, y);
+            }
+            screen.renderCellGrid(x1 * size, y1 * size, colors, x2 - x1, y2 - y1, size - 1, true);
+            return;
+        }
+
+        // Every row is split into runs of linked cells, so master is found once for every run
+        for (int y = y1; y < y2; y++) {
+            int row = y * width;
+            int yp = y * size;
+            int x = x1;
+            while (x < x2) {
+                int start = x;
+                while (x < x2 - 1 && (links[x + row] & linkRight) != 0) x++;
+                int end = x++; // Last cell of run
+
+                CellMaster master = level.getMaster(start, y);
+                int color = master == null ? getColor(start, y) : masterColors[master.getNode()];
+                if (color == -1) continue; // Nothing to render
+
+                if (master == null || master.getOwner() == null) {
+                    // Free cells are drawn apart
+                    screen.renderCellRun(start * size, yp, end - start + 1, size - 1, color, true);
+                    continue;
+                }
+
+                // Owned cells are connected: one span for cells and spans in gap below linked cells
+                boolean joinRight = (links[end + row] & linkRight) != 0; // Run is cut by area, but continues further
+                screen.render(start * size, yp, end * size + size - (joinRight ? 0 : 1), yp + size - 1, color, true);
+                int c = start;
+                while (c <= end) {
+                    if ((links[c + row] & linkDown) == 0) {
+                        c++;
+                        continue;
+                    }
+
+                    int spanStart = c;
+                    while (c <= end && (links[c + row] & linkDown) != 0) c++;
+                    boolean corner = c <= end || joinRight; // Gap corner is filled if cell is linked to the right too
+                    screen.render(spanStart * size, yp + size - 1, (c - 1) * size + size - (corner ? 0 : 1), yp + size, color, true);
+                }
+            }
+        }
+    }
+
+    public void postRender(Screen screen) {
+
+    }
+
+    public int getCellSize() {
+        return (int) (cellSize * zoom);
+    }
+
+    private int getFieldWidth() {
+        return level.getWidth() * (getCellSize() + 1) - 1; // Returns field width in pixels
+    }
+
+    private int getFieldHeight() {
+        return level.getHeight() * (getCellSize() + 1) - 1; // Returns field height in pixels
+    }
+
+    public void changeXOff(int dx) {
+        // Changing offset without going out of bounds
+        xOff += dx;
+        correctOffset();
+    }
+
+    public void changeYOff(int dy) {
+        // Changing offset without going out of bounds
+        yOff += dy;
+        correctOffset();
+    }
+
+    private void correctOffset() {
+        // Checking bounds and if field fits on the screen, centring it
+        int minXOff = Math.min((window.getWidth() - getFieldWidth()) / -2, 0);
+        int maxXOff = Math.max(getFieldWidth() - window.getWidth(), minXOff);
+        if (xOff < minXOff) xOff = minXOff;
+        if (xOff > maxXOff) xOff = maxXOff;
+
+        int minYOff = Math.min((window.getFieldHeight() - getFieldHeight()) / -2, 0);
+        int maxYOff = Math.max(getFieldHeight() - window.getFieldHeight(), minYOff);
+        if (yOff < minYOff) yOff = minYOff;
+        if (yOff > maxYOff) yOff = maxYOff;
+    }
+
+    public void changeZoom(int n) {
+        if (!initialized) return; // Nothing to zoom yet
+
+        // Checking if field fits and we don`t need to zoom it further
+        if (n == -1 && getFieldWidth() <= window.getWidth() && getFieldHeight() <= window.getFieldHeight()) return;
+
+        double pZoom = zoom; // Saving previous zoom
+        zoom += n * zoomStep;
+
+        // Checking if zoomed too much
+        if (getCellSize() < 1) {
+            zoom = pZoom;
+            return;
+        }
+
+        double diff = ((cellSize * zoom) - (cellSize * pZoom)); // Cell size change
+        // How many cells changed their size
+        int cellsX = (int) ((xOff + window.getWidth() / 2) / ((cellSize * pZoom) + 1));
+        int cellsY = (int) ((yOff + window.getFieldHeight() / 2) / ((cellSize * pZoom) + 1));
+        changeXOff((int) (cellsX * diff)); // Centring x offset
+        changeYOff((int) (cellsY * diff)); // Centring y offset
+    }
+
+    public L getLevel() {
+        return level;
+    }
+
+}
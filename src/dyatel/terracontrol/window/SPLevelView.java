@@ -0,0 +1,135 @@
+package dyatel.terracontrol.window;
+
+import dyatel.terracontrol.level.CellMaster;
+import dyatel.terracontrol.level.SPLevel;
+import dyatel.terracontrol.network.Player;
+import dyatel.terracontrol.util.Color;
+import dyatel.terracontrol.window.button.Button;
+import dyatel.terracontrol.window.button.ButtonController;
+import dyatel.terracontrol.window.button.TurnButton;
+
+public class SPLevelView extends LevelView<SPLevel> implements TurnableView {
+
+    private ButtonController buttons; // Buttons for making turns
+    private int currentColor; // Chosen color
+    private int currentColorID; // Chosen color array index
+    private int shownColorID = -1, shownTurns; // Highlighting that was drawn
+
+    public SPLevelView(SPLevel level, GameWindow window) {
+        super(level, window);
+    }
+
+    protected void onLevelInitialized() {
+        // Adding buttons
+        int[] colors = level.getColors();
+        buttons = new ButtonController();
+        for (int i = 0; i < colors.length; i++) {
+            int buttonSpacing = Button.getSize() + (Button.getHoveringSize() - Button.getSize() + 1) * 2;
+            int offset = (window.getHeight() - window.getFieldHeight()) / 2;
+            new TurnButton(offset + buttonSpacing * i, window.getFieldHeight() + offset, colors[i], buttons, this);
+        }
+    }
+
+    protected void sideUpdate() {
+        // Resetting chosen color
+        currentColor = 0;
+        currentColorID = -1;
+        buttons.update(mouseX, mouseY); // Updating buttons
+
+        // Highlighted cells depend on chosen color and on our border, colors are highlighted only while we are playing
+        Player current = level.getPlayer(0);
+        int highlight = level.getState() == 2 ? currentColorID : -1;
+        int turns = current == null ? 0 : current.getTurns();
+        if (highlight != shownColorID || (highlight != -1 && turns != shownTurns)) invalidate();
+        shownColorID = highlight;
+        shownTurns = turns;
+
+        // Printing current state
+        int state = level.getState();
+        switch (state) {
+            case -1:
+                window.statusBar[1] = "Waiting...";
+                break;
+            case 0:
+                window.statusBar[1] = "Generated: " + level.getGenerator().getGeneratedPercent() + "%";
+                invalidate(); // Generator places cells without masters
+                break;
+            case 1:
+                window.statusBar[1] = "Placing players: " + level.getPlacedPlayers() + "/" + level.getPlayers();
+                break;
+            case 2:
+                window.statusBar[1] = level.getCurrentPlayer() == 0 ? "Your move!" : "Wait...";
+                break;
+            case 3:
+                window.statusBar[1] = "You won!";
+                break;
+            case 4:
+                window.statusBar[1] = "You lost...";
+                break;
+            case 5:
+                window.statusBar[1] = "Draw.";
+                break;
+        }
+
+        if (state > 2) {
+            if (colorFading < 0xff) {
+                colorFading += 4;
+                invalidate();
+            }
+            return;
+        }
+
+        if (state == 2) {
+            // Calculating number of cells that we can capture
+            Player player = level.getPlayer(0);
+            int availableCells = player.canCapture(currentColorID);
+            window.statusBar[4] = String.valueOf(player.getMaster().getCellCount() + (availableCells > 0 ? "(+" + availableCells + ")" : "") + " cells");
+        }
+
+        // Managing mouse click
+        if (mouse.isClicked()) {
+            if (state == 1) {
+                level.placePlayer(level.getMaster(mouseLX, mouseLY)); // Placing players
+            } else if (state == 2) {
+                level.makeTurn(currentColorID); // Making turns
+            }
+        }
+    }
+
+    protected int getColor(int x, int y) {
+        // Rendering what generator has placed if level is not generated yet
+        int colorID = level.getGenerator().getColorID(x, y);
+        return colorID == -1 ? -1 : level.getColors()[colorID];
+    }
+
+    protected int getColor(CellMaster master) {
+        int[] colors = level.getColors();
+        int state = level.getState();
+        Player player = level.getPlayer(0);
+        if (currentColorID == -1 || state != 2) {
+            if (state > 2 && (master.getOwner() == null || !master.getOwner().isWinner())) {
+                return Color.subtract(colors[master.getColorID()], colorFading, colorFading, colorFading);
+            }
+            return colors[master.getColorID()];
+        } else if (player != null && (master.getOwner() == player || (master.getOwner() == null && player.getMaster().isNeighbor(master) && master.getColorID() == currentColorID))) {
+            return currentColor;
+        }
+        return Color.subtract(colors[master.getColorID()], 0xaa, 0xaa, 0xaa);
+    }
+
+    public void postRender(Screen screen) {
+        if (!initialized) return;
+        buttons.render(screen);
+    }
+
+    public boolean isTurnAvailable(int color) {
+        Player player = level.getPlayer(0);
+        return player != null && player.canCapture(level.getColorID(color)) > 0;
+    }
+
+    public void highlightTurn(int color) {
+        currentColor = color;
+        currentColorID = level.getColorID(color);
+    }
+
+}
@@ -3,6 +3,7 @@ package dyatel.terracontrol.window;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
+import java.util.Arrays;
 
 public class Screen {
 
@@ -30,12 +31,75 @@ public class Screen {
             y2 -= yOffset;
         }
 
-        for (int yCur = y1; yCur < y2; yCur++) {
-            if (yCur >= height || yCur < 0) continue;
-            for (int xCur = x1; xCur < x2; xCur++) {
-                if (xCur >= width || xCur < 0) continue;
-                pixels[xCur + yCur * width] = color;
+        // Clipping once, then first row is filled and copied to others
+        x1 = Math.max(x1, 0);
+        y1 = Math.max(y1, 0);
+        x2 = Math.min(x2, width);
+        y2 = Math.min(y2, height);
+        if (x1 >= x2 || y1 >= y2) return;
+
+        int first = x1 + y1 * width;
+        Arrays.fill(pixels, first, first + x2 - x1, color);
+        for (int y = y1 + 1; y < y2; y++) System.arraycopy(pixels, first, pixels, x1 + y * width, x2 - x1);
+    }
+
+    public void renderCellRun(int x, int y, int cells, int cellSize, int color, boolean applyOffset) {
+        // Row of same colored cells, (x, y) is corner of first one
+        if (applyOffset) {
+            x -= xOffset;
+            y -= yOffset;
+        }
+
+        renderCellRow(x, y, null, 0, cells, color, cellSize);
+    }
+
+    public void renderCellGrid(int x, int y, int[] colors, int columns, int rows, int cellSize, boolean applyOffset) {
+        // Cells with colors given row by row, -1 means that cell isn`t rendered
+        if (applyOffset) {
+            x -= xOffset;
+            y -= yOffset;
+        }
+
+        for (int row = 0; row < rows; row++) renderCellRow(x, y + row * (cellSize + 1), colors, row * columns, columns, 0, cellSize);
+    }
+
+    private void renderCellRow(int x, int y, int[] colors, int offset, int cells, int color, int cellSize) {
+        // Cells are squares with one pixel gap between them, gaps are left as they are
+        int y1 = Math.max(y, 0);
+        int y2 = Math.min(y + cellSize, height);
+        if (y1 >= y2) return;
+
+        int row = y1 * width;
+        for (int c = x < 0 ? -x / (cellSize + 1) : 0; c < cells; c++) {
+            int x1 = x + c * (cellSize + 1);
+            if (x1 >= width) break; // Other cells are out of screen too
+            int x2 = Math.min(x1 + cellSize, width);
+            x1 = Math.max(x1, 0);
+
+            int cellColor = colors == null ? color : colors[offset + c];
+            if (cellColor == -1 || x1 >= x2) continue;
+
+            Arrays.fill(pixels, row + x1, row + x2, cellColor);
+            for (int yCur = y1 + 1; yCur < y2; yCur++) System.arraycopy(pixels, row + x1, pixels, x1 + yCur * width, x2 - x1);
+        }
+    }
+
+    public void copy(Screen source, int xOffset, int yOffset, int rows) {
+        // Copying source to our top rows, so its pixel (xOffset, yOffset) is our (0, 0), pixels out of source are black
+        rows = Math.min(rows, height);
+        int x1 = Math.max(-xOffset, 0); // First column covered by source
+        int x2 = Math.min(source.width - xOffset, width); // Column after last one
+        for (int y = 0; y < rows; y++) {
+            int row = y * width;
+            int sourceY = y + yOffset;
+            if (sourceY < 0 || sourceY >= source.height || x1 >= x2) {
+                Arrays.fill(pixels, row, row + width, 0);
+                continue;
             }
+
+            Arrays.fill(pixels, row, row + x1, 0);
+            System.arraycopy(source.pixels, x1 + xOffset + sourceY * source.width, pixels, row + x1, x2 - x1);
+            Arrays.fill(pixels, row + x2, row + width, 0);
         }
     }
 
@@ -45,10 +109,8 @@ public class Screen {
     }
 
     public void draw(Graphics g) {
+        // Buffer isn`t cleared, views draw only what changed since last frame
         g.drawImage(image, 0, 0, null);
-
-        // Clearing buffer
-        for (int i = 0; i < pixels.length; i++) pixels[i] = 0;
     }
 
 }
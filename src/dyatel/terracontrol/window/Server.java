@@ -16,8 +16,9 @@ public class Server extends GameWindow {
 
         // Initialization goes here
         screen = new Screen(width, height);
-        level = new ServerLevel(data, this);
-        connection = new ServerConnection(data.getInteger("port"), this);
+        level = new ServerLevel(data, debug);
+        view = new ServerLevelView(getLevel(), this);
+        connection = new ServerConnection(data.getInteger("port"), getLevel(), debug);
 
         // Starting main loop
         thread = new Thread(this, "Server");
@@ -25,7 +26,7 @@ public class Server extends GameWindow {
     }
 
     protected void update() {
-        level.update();
+        view.update();
     }
 
     public ServerLevel getLevel() {
@@ -0,0 +1,81 @@
+package dyatel.terracontrol.window;
+
+import dyatel.terracontrol.level.CellMaster;
+import dyatel.terracontrol.level.ServerLevel;
+import dyatel.terracontrol.network.Player;
+import dyatel.terracontrol.util.Color;
+
+public class ServerLevelView extends LevelView<ServerLevel> {
+
+    public ServerLevelView(ServerLevel level, GameWindow window) {
+        super(level, window);
+    }
+
+    protected void sideUpdate() {
+        // Finding master under mouse
+        CellMaster masterUnderMouse = level.getMaster(mouseLX, mouseLY);
+        if (masterUnderMouse != null) {
+            window.statusBar[1] = String.valueOf(masterUnderMouse.getID());
+        } else {
+            window.statusBar[1] = "null";
+        }
+
+        // Printing current state
+        int state = level.getState();
+        switch (state) {
+            case -1:
+                window.statusBar[1] = "Waiting...";
+                break;
+            case 0:
+                window.statusBar[1] = "Generated: " + level.getGenerator().getGeneratedPercent() + "%";
+                invalidate(); // Generator places cells without masters
+                break;
+            case 1:
+                window.statusBar[1] = "Placing players: " + level.getPlacedPlayers() + "/" + level.getPlayers();
+                break;
+            case 2:
+                int connected = 0;
+                for (int i = 0; i < level.getPlayers(); i++) if (level.getPlayer(i).isConnected()) connected++;
+                if (connected < level.getPlayers()) {
+                    window.statusBar[1] = "Waiting for players: " + connected + "/" + level.getPlayers();
+                } else {
+                    window.statusBar[1] = "Players are receiving level";
+                }
+                break;
+            case 3:
+                window.statusBar[1] = "Current player: " + level.getConnection().getCurrentPlayer();
+                break;
+            case 4:
+                window.statusBar[1] = "Game end.";
+                break;
+        }
+
+        // Printing sent/received data in the status bar
+        window.statusBar[5] = level.getConnection().getTraffic();
+
+        if (state == 4) {
+            if (colorFading < 0xff) {
+                colorFading += 4;
+                invalidate();
+            }
+            return;
+        }
+
+        // Placing players
+        if (mouse.isClicked() && state == 1) level.placePlayer(level.getMaster(mouseLX, mouseLY));
+    }
+
+    protected int getColor(int x, int y) {
+        // Rendering what generator has placed if level is not generated yet
+        int colorID = level.getGenerator().getColorID(x, y);
+        return colorID == -1 ? -1 : level.getColors()[colorID];
+    }
+
+    protected int getColor(CellMaster master) {
+        int color = level.getColors()[master.getColorID()];
+        Player owner = master.getOwner();
+        if (owner == null || !owner.isWinner()) color = Color.subtract(color, colorFading, colorFading, colorFading);
+        return color;
+    }
+
+}
@@ -16,7 +16,8 @@ public class SinglePlayer extends GameWindow {
 
         // Initialization goes here
         screen = new Screen(width, height);
-        level = new SPLevel(data, this);
+        level = new SPLevel(data, debug);
+        view = new SPLevelView(getLevel(), this);
 
         // Creating main loop
         thread = new Thread(this, "TerraControl");
@@ -24,7 +25,7 @@ public class SinglePlayer extends GameWindow {
     }
 
     protected void update() {
-        level.update();
+        view.update();
     }
 
     public SPLevel getLevel() {
@@ -1,6 +1,6 @@
-package dyatel.terracontrol.level;
+package dyatel.terracontrol.window;
 
-public interface TurnableLevel {
+public interface TurnableView {
 
     public boolean isTurnAvailable(int color);
 
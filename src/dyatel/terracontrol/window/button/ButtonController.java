@@ -1,4 +1,4 @@
-package dyatel.terracontrol.level.button;
+package dyatel.terracontrol.window.button;
 
 import dyatel.terracontrol.window.Screen;
 
@@ -0,0 +1,24 @@
+package dyatel.terracontrol.window.button;
+
+import dyatel.terracontrol.window.TurnableView;
+
+public class TurnButton extends Button {
+
+    protected TurnableView view;
+
+    public TurnButton(int x, int y, int color, ButtonController controller, TurnableView view) {
+        super(x, y, color, controller);
+
+        this.view = view;
+    }
+
+    protected void update() {
+        active = view.isTurnAvailable(color);
+    }
+
+    public void setHovering(boolean hovering) {
+        this.hovering = hovering;
+        if (hovering && active) view.highlightTurn(color);
+    }
+
+}